@@ -0,0 +1,92 @@
+package com.example.Attendance.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Decode/orient/resize/encode path of ImageNormalizer on a phone-sized photo with EXIF orientation 6
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageNormalizationBenchmark {
+
+	@Param({"4032x3024", "1920x1080"})
+	public String sourceSize;
+
+	@Param({"1280", "640"})
+	public int maxDimension;
+
+	private byte[] jpeg;
+	private BufferedImage decoded;
+
+	@Setup
+	public void setUp() throws IOException {
+		String[] size = sourceSize.split("x");
+		BufferedImage image = syntheticPhoto(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+		jpeg = withOrientation(ImageUtil.encodeJpeg(image, 0.92f), 6);
+		decoded = ImageUtil.decode(jpeg);
+	}
+
+	@Benchmark
+	public BufferedImage decode() throws IOException {
+		return ImageUtil.decode(jpeg);
+	}
+
+	// What ImageNormalizer does: subsampled towards maxDimension while decoding
+	@Benchmark
+	public BufferedImage decodeWithin() throws IOException {
+		return ImageUtil.decodeWithin(jpeg, maxDimension, Long.MAX_VALUE).image();
+	}
+
+	@Benchmark
+	public BufferedImage orientAndScale() {
+		return ImageUtil.orientAndScale(decoded, 6, maxDimension);
+	}
+
+	@Benchmark
+	public byte[] normalize() throws IOException {
+		int orientation = ImageUtil.readExifOrientation(jpeg);
+		BufferedImage image = ImageUtil.orientAndScale(ImageUtil.decodeWithin(jpeg, maxDimension, Long.MAX_VALUE).image(),
+				orientation, maxDimension);
+		return ImageUtil.encodeJpeg(image, 0.85f);
+	}
+
+	// Gradients plus noise, so the encoder has photo-like detail to work with
+	private static BufferedImage syntheticPhoto(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setPaint(new GradientPaint(0, 0, new Color(40, 90, 160), width, height, new Color(230, 190, 140)));
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+
+		Random random = new Random(42);
+		for (int i = 0; i < width * height / 8; i++) {
+			int x = random.nextInt(width);
+			int y = random.nextInt(height);
+			image.setRGB(x, y, image.getRGB(x, y) ^ random.nextInt(0x202020));
+		}
+		return image;
+	}
+
+	// Inserts an APP1 EXIF segment holding only the orientation tag after SOI
+	private static byte[] withOrientation(byte[] jpeg, int orientation) {
+		byte[] exif = {
+				(byte) 0xFF, (byte) 0xE1, 0, 34,
+				'E', 'x', 'i', 'f', 0, 0,
+				'M', 'M', 0, 42, 0, 0, 0, 8,
+				0, 1,
+				0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+				0, 0, 0, 0
+		};
+		ByteArrayOutputStream out = new ByteArrayOutputStream(jpeg.length + exif.length);
+		out.write(jpeg, 0, 2);
+		out.write(exif, 0, exif.length);
+		out.write(jpeg, 2, jpeg.length - 2);
+		return out.toByteArray();
+	}
+}
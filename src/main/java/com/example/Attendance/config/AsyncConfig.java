@@ -0,0 +1,17 @@
+package com.example.Attendance.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class AsyncConfig {
+
+    // Fan-out of the blocking calls in the check-in pipeline (face service, MinIO, Mongo)
+    @Bean(destroyMethod = "close")
+    public ExecutorService checkinExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
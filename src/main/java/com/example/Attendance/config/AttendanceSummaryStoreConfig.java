@@ -0,0 +1,36 @@
+package com.example.Attendance.config;
+
+import com.example.Attendance.repository.AttendanceSummaryStore;
+import com.example.Attendance.repository.BucketedAttendanceSummaryStore;
+import com.example.Attendance.repository.EmployeeAttendanceSummaryRepository;
+import com.example.Attendance.repository.LegacyAttendanceSummaryStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@Configuration
+public class AttendanceSummaryStoreConfig {
+
+    @Bean
+    public LegacyAttendanceSummaryStore legacyAttendanceSummaryStore(EmployeeAttendanceSummaryRepository summaryRepo,
+                                                                     MongoTemplate mongoTemplate) {
+        return new LegacyAttendanceSummaryStore(summaryRepo, mongoTemplate);
+    }
+
+    @Bean
+    public BucketedAttendanceSummaryStore bucketedAttendanceSummaryStore(MongoTemplate mongoTemplate,
+                                                                         LegacyAttendanceSummaryStore legacyStore) {
+        return new BucketedAttendanceSummaryStore(mongoTemplate, legacyStore);
+    }
+
+    // Store used by the attendance services: "legacy" (default) or "bucketed"
+    @Bean
+    @Primary
+    public AttendanceSummaryStore attendanceSummaryStore(@Value("${attendance.summary.storage:legacy}") String storage,
+                                                         LegacyAttendanceSummaryStore legacyStore,
+                                                         BucketedAttendanceSummaryStore bucketedStore) {
+        return "bucketed".equalsIgnoreCase(storage) ? bucketedStore : legacyStore;
+    }
+}
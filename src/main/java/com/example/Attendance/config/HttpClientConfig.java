@@ -0,0 +1,120 @@
+package com.example.Attendance.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound HTTP clients, one connection pool per destination. Settings per client under
+ * attendance.http.&lt;name&gt;: max-connections, connect-timeout, read-timeout, pool-timeout, total-timeout.
+ * Pool usage is published as httpcomponents.httpclient.pool.* metrics tagged with the client name.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    private final Environment env;
+    private final MeterRegistry meterRegistry;
+
+    // Aborts requests that exceed their total timeout
+    private final ScheduledExecutorService deadlineScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "http-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HttpClientConfig(Environment env, MeterRegistry meterRegistry) {
+        this.env = env;
+        this.meterRegistry = meterRegistry;
+        ((ScheduledThreadPoolExecutor) deadlineScheduler).setRemoveOnCancelPolicy(true);
+    }
+
+    @Bean
+    public RestTemplate faceRestTemplate() {
+        return pooledRestTemplate("face");
+    }
+
+    @Bean
+    public RestTemplate minioRestTemplate() {
+        return pooledRestTemplate("minio");
+    }
+
+    private RestTemplate pooledRestTemplate(String name) {
+        String prefix = "attendance.http." + name + ".";
+        int maxConnections = env.getProperty(prefix + "max-connections", Integer.class, 50);
+        Duration connectTimeout = env.getProperty(prefix + "connect-timeout", Duration.class, Duration.ofSeconds(2));
+        Duration readTimeout = env.getProperty(prefix + "read-timeout", Duration.class, Duration.ofSeconds(20));
+        Duration poolTimeout = env.getProperty(prefix + "pool-timeout", Duration.class, Duration.ofSeconds(5));
+        Duration totalTimeout = env.getProperty(prefix + "total-timeout", Duration.class, Duration.ofSeconds(30));
+
+        // Each service is a single host, so the route limit is the whole pool
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeout.toMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(meterRegistry);
+
+        return new RestTemplate(new DeadlineRequestFactory(httpClient, totalTimeout));
+    }
+
+    private class DeadlineRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+        private final long totalTimeoutMs;
+
+        DeadlineRequestFactory(CloseableHttpClient httpClient, Duration totalTimeout) {
+            super(httpClient);
+            this.totalTimeoutMs = totalTimeout.toMillis();
+        }
+
+        @Override
+        protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+            ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+            if (request instanceof Cancellable) {
+                // Weak, so a finished request and its body are not kept alive until the deadline
+                WeakReference<Cancellable> ref = new WeakReference<>((Cancellable) request);
+                deadlineScheduler.schedule(() -> {
+                    Cancellable pending = ref.get();
+                    if (pending != null) pending.cancel();
+                }, totalTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            return request;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.Attendance.config;
+
+import com.example.Attendance.service.IdempotencyStore;
+import com.example.Attendance.service.IdempotencyStore.Claim;
+import com.example.Attendance.service.IdempotencyStore.StoredResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency-Key support for every mutating request (POST, PUT, PATCH, DELETE). A retry with the same
+ * key and endpoint waits for the original if it is still running and then gets its response; a retry
+ * after it finished gets the stored response replayed, without face recognition, uploads or writes.
+ * Replays carry Idempotent-Replayed: true. Requests without the header are not affected. The key is
+ * bound to a fingerprint of the request (method, path, parameters and a hash of the body or uploaded
+ * files); reusing it for a different request, e.g. another empId, is answered with 422.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> MUTATING_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Counter replayed;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.replayed = Counter.builder("attendance.idempotency.replayed").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !MUTATING_METHODS.contains(request.getMethod()) || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(request, response, HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        // The same key on another endpoint is another request
+        String scopedKey = request.getMethod() + " " + request.getRequestURI() + "|" + key;
+        HttpServletRequest fingerprinted = readBodyIfNeeded(request);
+        String fingerprint = fingerprint(fingerprinted);
+
+        while (true) {
+            Claim claim = store.claim(scopedKey, fingerprint);
+            if (!claim.owner() && claim.fingerprint() != null && !claim.fingerprint().equals(fingerprint)) {
+                writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "This " + HEADER + " was already used for a different request");
+                return;
+            }
+            if (claim.owner()) {
+                runAndStore(fingerprinted, response, chain, scopedKey, claim);
+                return;
+            }
+
+            StoredResponse original;
+            try {
+                original = store.await(claim);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException("Interrupted while waiting for the original request", e);
+            } catch (ExecutionException | CancellationException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    original = null;
+                } else {
+                    // The original failed without a response: this request takes over
+                    continue;
+                }
+            }
+
+            if (original == null) {
+                writeError(request, response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+            } else {
+                replay(response, original);
+            }
+            return;
+        }
+    }
+
+    private void runAndStore(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                             String scopedKey, Claim claim) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+        } catch (ServletException | IOException | RuntimeException e) {
+            store.abandon(scopedKey, claim, e);
+            throw e;
+        }
+
+        if (request.isAsyncStarted()) {
+            // Streaming responses are not replayable
+            store.abandon(scopedKey, claim, new IllegalStateException("Asynchronous response"));
+        } else {
+            store.complete(scopedKey, claim,
+                    new StoredResponse(wrapper.getStatus(), wrapper.getContentType(), wrapper.getContentAsByteArray()));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    // Form and multipart bodies are read by the container into parameters and parts; any other body is
+    // read here once and handed on in memory so it can be hashed
+    private static HttpServletRequest readBodyIfNeeded(HttpServletRequest request) throws IOException {
+        if (isFormOrMultipart(request)) {
+            return request;
+        }
+        return new CachedBodyRequest(request, request.getInputStream().readAllBytes());
+    }
+
+    private static String fingerprint(HttpServletRequest request) throws IOException, ServletException {
+        MessageDigest digest = sha256();
+        update(digest, request.getMethod());
+        update(digest, request.getRequestURI());
+        // Query string and form fields alike, in a stable order
+        for (Map.Entry<String, String[]> param : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            update(digest, param.getKey());
+            for (String value : param.getValue()) {
+                update(digest, value);
+            }
+        }
+        if (request instanceof CachedBodyRequest cached) {
+            digest.update(cached.body);
+        } else if (isMultipart(request)) {
+            for (Part part : request.getParts()) {
+                if (part.getSubmittedFileName() == null) {
+                    continue; // a plain field, already among the parameters
+                }
+                update(digest, part.getName());
+                try (InputStream in = new DigestInputStream(part.getInputStream(), digest)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Length-prefixed so that ("ab", "c") and ("a", "bc") differ
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(new byte[] {(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16),
+                (byte) (bytes.length >>> 8), (byte) bytes.length});
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isFormOrMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return isMultipart(request)
+                || (contentType != null && contentType.toLowerCase().startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE));
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith("multipart/");
+    }
+
+    private void replay(HttpServletResponse response, StoredResponse original) throws IOException {
+        replayed.increment();
+        response.setStatus(original.status());
+        if (original.contentType() != null) {
+            response.setContentType(original.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(original.body().length);
+        response.getOutputStream().write(original.body());
+    }
+
+    // Same body as GlobalExceptionHandler, which does not see errors raised in filters
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String message)
+            throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", message);
+        body.put("path", request.getRequestURI());
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.Attendance.config;
+
+import io.minio.MinioClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MinioConfig {
+
+    @Bean
+    public MinioClient minioClient(@Value("${minio.url}") String url,
+                                   @Value("${minio.accessKey}") String accessKey,
+                                   @Value("${minio.secretKey}") String secretKey) {
+        return MinioClient.builder()
+                .endpoint(url)
+                .credentials(accessKey, secretKey)
+                .build();
+    }
+}
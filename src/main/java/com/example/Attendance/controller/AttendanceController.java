@@ -2,13 +2,18 @@ package com.example.Attendance.controller;
 
 import com.example.Attendance.dto.BulkAttendanceRequest;
 import com.example.Attendance.dto.DayAttendanceResponse;
+import com.example.Attendance.dto.KioskEventBatchRequest;
 import com.example.Attendance.model.RegisteredUser;
 import com.example.Attendance.service.AttendanceService;
+import com.example.Attendance.service.EmployeeService;
+import com.example.Attendance.service.KioskEventIngestionService;
+import com.example.Attendance.service.TeamStatusStreamService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.time.LocalDate;
@@ -22,6 +27,9 @@ import java.util.Optional;
 public class AttendanceController {
 
     private final AttendanceService attendanceService;
+    private final EmployeeService employeeService;
+    private final KioskEventIngestionService kioskEventIngestionService;
+    private final TeamStatusStreamService teamStatusStreamService;
 
     @PostMapping("employee/checkin")
     public ResponseEntity<Map<String, Object>> markAttendanceWithFace(
@@ -39,6 +47,14 @@ public class AttendanceController {
         return ResponseEntity.ok(result);
     }
 
+    @PostMapping("manager/group-checkin")
+    public ResponseEntity<Map<String, Object>> groupCheckinWithFace(
+            @RequestParam String managerId,
+            @RequestParam MultipartFile file) throws IOException {
+        Map<String, Object> result = attendanceService.handleGroupCheckin(file, managerId);
+        return ResponseEntity.ok(result);
+    }
+
     @PostMapping("employee/manual-checkin")
     public ResponseEntity<Map<String,Object>> markManualAttendance(
             @RequestParam String empId,
@@ -48,6 +64,12 @@ public class AttendanceController {
     }
 
 
+    // Offline kiosk replay: events keep their own timestamps; resending a batch is safe
+    @PostMapping("kiosk/events")
+    public ResponseEntity<Map<String, Object>> ingestKioskEvents(@RequestBody KioskEventBatchRequest request) {
+        return ResponseEntity.ok(kioskEventIngestionService.ingest(request.getEvents()));
+    }
+
     @PostMapping("employee/checkout")
     public ResponseEntity<String> checkOut(@RequestParam String employeeId) {
         return ResponseEntity.ok(attendanceService.checkOut(employeeId));
@@ -124,11 +146,28 @@ public class AttendanceController {
         }
     }
 
+    // Drop cached employee details after they change in the employee system (all entries if no empId)
+    @PostMapping("manager/employee-cache/evict")
+    public ResponseEntity<String> evictEmployeeCache(@RequestParam(required = false) String empId) {
+        if (empId == null) {
+            employeeService.evictAllEmployees();
+        } else {
+            employeeService.evictEmployee(empId);
+        }
+        return ResponseEntity.ok("Employee cache cleared");
+    }
+
     @GetMapping("manager/team-status/{managerId}")
     public ResponseEntity<Map<String, Object>> getTeamCheckInStatus(@PathVariable String managerId) {
         return ResponseEntity.ok(attendanceService.getTeamCheckInStatus(managerId));
     }
 
+    // Snapshot, then live updates as the team checks in and out (text/event-stream)
+    @GetMapping("manager/team-status/{managerId}/stream")
+    public SseEmitter streamTeamCheckInStatus(@PathVariable String managerId) {
+        return teamStatusStreamService.subscribe(managerId);
+    }
+
     @GetMapping("manager/registered-team-members/{managerId}")
     public ResponseEntity<Map<String, Object>> getRegisteredTeamMembers(@PathVariable String managerId) {
         return ResponseEntity.ok(attendanceService.getRegisteredTeamMembers(managerId));
@@ -1,33 +1,61 @@
 package com.example.Attendance.controller;
 
+import com.example.Attendance.service.AttendanceSummaryMigrationService;
 import com.example.Attendance.service.AttendanceSummaryService;
+import com.example.Attendance.service.EmployeeService;
+import com.example.Attendance.service.MonthlySummarySnapshotService;
+import com.example.Attendance.util.MonthlySummaryCodec;
 import com.example.Attendance.dto.MonthlyAttendanceSummaryDTO;
+import com.example.Attendance.exception.CustomException;
 import com.example.Attendance.model.Employee;
 import com.example.Attendance.repository.EmployeeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/attendance-summary")
 public class AttendanceSummaryController {
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private AttendanceSummaryService attendanceSummaryService;
     @Autowired
     private EmployeeRepository employeeRepository;
+    @Autowired
+    private AttendanceSummaryMigrationService migrationService;
+    @Autowired
+    private EmployeeService employeeService;
+    @Autowired
+    private MonthlySummarySnapshotService summarySnapshotService;
 
     @GetMapping("/{employeeId}/{year}/{month}")
-    public ResponseEntity<MonthlyAttendanceSummaryDTO> getMonthlyAttendanceSummary(
+    public ResponseEntity<Object> getMonthlyAttendanceSummary(
             @PathVariable String employeeId,
             @PathVariable int year,
-            @PathVariable int month) {
+            @PathVariable int month,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         MonthlyAttendanceSummaryDTO summary = attendanceSummaryService.getMonthlySummary(employeeId, year, month);
+        if (isCompact(format, accept)) {
+            return ResponseEntity.ok(MonthlySummaryCodec.encode(summary, year, month));
+        }
         return ResponseEntity.ok(summary);
     }
 
@@ -36,8 +64,10 @@ public class AttendanceSummaryController {
     public ResponseEntity<Map<String, Object>> getManagerTeamMonthlyAttendance(
             @PathVariable String managerId,
             @PathVariable int year,
-            @PathVariable int month) {
-        Optional<Employee> managerOpt = employeeRepository.findByEmployeeId(managerId);
+            @PathVariable int month,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Optional<Employee> managerOpt = employeeService.getEmployeeByEmpId(managerId);
         if (managerOpt.isEmpty()) {
             return ResponseEntity.status(404).body(Map.of("error", "Manager not found"));
         }
@@ -46,17 +76,10 @@ public class AttendanceSummaryController {
         if (teamIds == null || teamIds.isEmpty()) {
             return ResponseEntity.ok(Map.of("managerId", managerId, "teamAttendance", Collections.emptyList()));
         }
-        List<Map<String, Object>> teamAttendance = teamIds.stream().map(empId -> {
-            try {
-                MonthlyAttendanceSummaryDTO summary = attendanceSummaryService.getMonthlySummary(empId, year, month);
-                return Map.of("employeeId", empId, "attendance", summary);
-            } catch (Exception e) {
-                Map<String, Object> errorMap = new HashMap<>();
-                errorMap.put("employeeId", empId);
-                errorMap.put("error", e.getMessage());
-                return errorMap;
-            }
-        }).collect(Collectors.toList());
+        List<Map<String, Object>> teamAttendance = attendanceSummaryService.getTeamMonthlySummaries(teamIds, year, month);
+        if (isCompact(format, accept)) {
+            teamAttendance = encodeEntries(teamAttendance, year, month);
+        }
         return ResponseEntity.ok(Map.of("managerId", managerId, "teamAttendance", teamAttendance));
     }
 
@@ -65,22 +88,95 @@ public class AttendanceSummaryController {
     public ResponseEntity<Map<String, Object>> getCompanyMonthlyAttendance(
             @PathVariable String companyId,
             @PathVariable int year,
-            @PathVariable int month) {
-        List<Employee> employees = employeeRepository.findByCompanyId(companyId);
+            @PathVariable int month,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<Employee> employees = employeeRepository.findDirectoryEntriesByCompanyId(companyId);
         if (employees == null || employees.isEmpty()) {
             return ResponseEntity.ok(Map.of("companyId", companyId, "hrAttendance", Collections.emptyList()));
         }
-        List<Map<String, Object>> attendanceList = employees.stream().map(emp -> {
-            try {
-                MonthlyAttendanceSummaryDTO summary = attendanceSummaryService.getMonthlySummary(emp.getEmployeeId(), year, month);
-                return Map.of("employeeId", emp.getEmployeeId(), "attendance", summary);
-            } catch (Exception e) {
-                Map<String, Object> errorMap = new HashMap<>();
-                errorMap.put("employeeId", emp.getEmployeeId());
-                errorMap.put("error", e.getMessage());
-                return errorMap;
-            }
-        }).collect(Collectors.toList());
+        List<Map<String, Object>> attendanceList = attendanceSummaryService.getMonthlySummaries(employees, year, month);
+        if (isCompact(format, accept)) {
+            attendanceList = encodeEntries(attendanceList, year, month);
+        }
         return ResponseEntity.ok(Map.of("companyId", companyId, "hrAttendance", attendanceList));
     }
-} 
\ No newline at end of file
+
+    // 1b. Manager endpoint, streamed as NDJSON (one team member per line)
+    @GetMapping("/manager/{managerId}/{year}/{month}/stream")
+    public ResponseEntity<StreamingResponseBody> streamManagerTeamMonthlyAttendance(
+            @PathVariable String managerId,
+            @PathVariable int year,
+            @PathVariable int month,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean compact = isCompact(format, accept);
+        Optional<Employee> managerOpt = employeeService.getEmployeeByEmpId(managerId);
+        if (managerOpt.isEmpty()) {
+            throw new CustomException("Manager not found", HttpStatus.NOT_FOUND);
+        }
+        List<String> teamIds = Optional.ofNullable(managerOpt.get().getAssignTo()).orElse(Collections.emptyList());
+        return ndjson(acceptEncoding, out -> attendanceSummaryService.streamTeamMonthlySummaries(teamIds, year, month, compact, out));
+    }
+
+    // 2b. HR endpoint, streamed as NDJSON (one employee per line)
+    @GetMapping("/hr/{companyId}/{year}/{month}/stream")
+    public ResponseEntity<StreamingResponseBody> streamCompanyMonthlyAttendance(
+            @PathVariable String companyId,
+            @PathVariable int year,
+            @PathVariable int month,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean compact = isCompact(format, accept);
+        return ndjson(acceptEncoding, out -> {
+            try (Stream<Employee> employees = employeeRepository.streamDirectoryEntriesByCompanyId(companyId)) {
+                attendanceSummaryService.streamMonthlySummaries(employees.iterator(), year, month, compact, out);
+            }
+        });
+    }
+
+    // 4. Drop materialized summaries touched by a change made elsewhere, e.g. a leave approved or cancelled
+    @PostMapping("/invalidate")
+    public ResponseEntity<Map<String, Object>> invalidateMonthlySummaries(
+            @RequestParam String employeeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) List<LocalDate> dates) {
+        summarySnapshotService.invalidate(employeeId, dates);
+        return ResponseEntity.ok(Map.of("message", "Summaries invalidated", "employeeId", employeeId));
+    }
+
+    // Compact bitmask format, asked for with ?format=compact or Accept: application/vnd.attendance.summary.compact+json
+    private boolean isCompact(String format, String accept) {
+        return "compact".equalsIgnoreCase(format) || (accept != null && accept.contains(MonthlySummaryCodec.MEDIA_TYPE));
+    }
+
+    private List<Map<String, Object>> encodeEntries(List<Map<String, Object>> entries, int year, int month) {
+        return entries.stream().map(entry -> MonthlySummaryCodec.encodeEntry(entry, year, month)).toList();
+    }
+
+    // gzip-compressed when the client accepts it; flushed per window so lines reach the client as they are computed
+    private ResponseEntity<StreamingResponseBody> ndjson(String acceptEncoding, StreamingResponseBody body) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(body);
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192, true);
+            body.writeTo(gzipOut);
+            gzipOut.finish();
+        });
+    }
+
+    // 3. Copy legacy summaries into month buckets (runs in the background)
+    @PostMapping("/migrate-to-month-buckets")
+    public ResponseEntity<Map<String, Object>> migrateToMonthBuckets() {
+        if (!migrationService.startMigration()) {
+            return ResponseEntity.status(409).body(Map.of("message", "Migration already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Migration started"));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.Attendance.controller;
+
+import com.example.Attendance.service.MongoIndexService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/indexes")
+@RequiredArgsConstructor
+public class IndexController {
+
+    private final MongoIndexService mongoIndexService;
+
+    // Index usage per collection ($indexStats); an index with 0 ops since a restart is a candidate for removal
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getIndexUsage() {
+        return ResponseEntity.ok(mongoIndexService.indexUsage());
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> ensureIndexes() {
+        mongoIndexService.ensureIndexes();
+        return ResponseEntity.ok(Map.of("message", "Indexes ensured"));
+    }
+}
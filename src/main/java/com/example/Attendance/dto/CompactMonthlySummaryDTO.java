@@ -0,0 +1,21 @@
+package com.example.Attendance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// MonthlyAttendanceSummaryDTO as bitmasks: bit (day - 1) of a mask is set when the day is in that category
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompactMonthlySummaryDTO {
+    private int year;
+    private int month;
+    private int present;
+    private int fullLeave;
+    private int halfDayLeave;
+    private int fullCompoff;
+    private int halfCompoff;
+    private int weeklyOff;
+    private int absent;
+}
@@ -0,0 +1,19 @@
+package com.example.Attendance.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class KioskEventBatchRequest {
+    private List<KioskEvent> events;
+
+    @Data
+    public static class KioskEvent {
+        private String eventId; // unique per event on the kiosk; replays of the same event are ignored
+        private String empId;
+        private String type; // checkin or checkout
+        private long timestampEpoch; // when it happened, epoch seconds
+        private String imageUrl; // check-in image already uploaded by the kiosk (optional)
+    }
+}
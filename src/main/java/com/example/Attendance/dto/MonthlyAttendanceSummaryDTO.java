@@ -1,6 +1,7 @@
 package com.example.Attendance.dto;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 public class MonthlyAttendanceSummaryDTO {
@@ -12,6 +13,23 @@ public class MonthlyAttendanceSummaryDTO {
     private List<LocalDate> weeklyOffDates;
     private List<LocalDate> absentDates;
 
+    public MonthlyAttendanceSummaryDTO() {}
+
+    // Deep copy, so cached summaries are never shared with callers
+    public MonthlyAttendanceSummaryDTO(MonthlyAttendanceSummaryDTO other) {
+        this.presentDates = copy(other.presentDates);
+        this.fullLeaveDates = copy(other.fullLeaveDates);
+        this.halfDayLeaveDates = copy(other.halfDayLeaveDates);
+        this.fullCompoffDates = copy(other.fullCompoffDates);
+        this.halfCompoffDates = copy(other.halfCompoffDates);
+        this.weeklyOffDates = copy(other.weeklyOffDates);
+        this.absentDates = copy(other.absentDates);
+    }
+
+    private static List<LocalDate> copy(List<LocalDate> dates) {
+        return dates == null ? null : new ArrayList<>(dates);
+    }
+
     // Getters and setters
     public List<LocalDate> getPresentDates() { return presentDates; }
     public void setPresentDates(List<LocalDate> presentDates) { this.presentDates = presentDates; }
@@ -0,0 +1,12 @@
+package com.example.Attendance.exception;
+
+import org.springframework.http.HttpStatus;
+
+// The face recognition service is down, too slow, or its circuit is open
+public class FaceServiceUnavailableException extends CustomException {
+
+    public FaceServiceUnavailableException(String message, Throwable cause) {
+        super(message, HttpStatus.SERVICE_UNAVAILABLE);
+        if (cause != null) initCause(cause);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.Attendance.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Load shedding: answered with 429 and a Retry-After header
+public class TooManyRequestsException extends CustomException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message, HttpStatus.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
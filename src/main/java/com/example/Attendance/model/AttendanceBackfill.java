@@ -0,0 +1,26 @@
+package com.example.Attendance.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// Per-employee marker of the absence backfill: past days up to backfilledThrough have a status
+@Document(collection = "attendance_backfill")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceBackfill {
+
+    @Id
+    private String employeeId;
+    private LocalDate backfilledThrough;
+    @Indexed
+    private boolean completed; // true once done for the first check-in; never runs again
+    private Instant updatedAt;
+}
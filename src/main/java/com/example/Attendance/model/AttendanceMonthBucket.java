@@ -0,0 +1,51 @@
+package com.example.Attendance.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+// One employee-month of the attendance summary. Bit (day - 1) of a mask is set when the day has that status.
+@Document(collection = "attendance_summary_months")
+@CompoundIndex(name = "employeeId_year_month", def = "{'employeeId': 1, 'year': 1, 'month': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceMonthBucket {
+
+    @Id
+    private String id; // e.g. "emp002_2025-04"
+    private String employeeId;
+    private int year;
+    private int month;
+
+    private int presentMask;
+    private int absentMask;
+    private int leaveMask;
+    private int lopMask;
+    private int weeklyOffMask;
+
+    private Map<String, String> leaveIds; // key: day of month (e.g. "10"), only for days that carry a leaveId
+
+    public static String bucketId(String employeeId, int year, int month) {
+        return String.format("%s_%04d-%02d", employeeId, year, month);
+    }
+
+    public int getMask(DayStatus status) {
+        return switch (status) {
+            case PRESENT -> presentMask;
+            case ABSENT -> absentMask;
+            case LEAVE -> leaveMask;
+            case LOP -> lopMask;
+            case WEEKLY_OFF -> weeklyOffMask;
+        };
+    }
+
+    public int getOccupiedMask() {
+        return presentMask | absentMask | leaveMask | lopMask | weeklyOffMask;
+    }
+}
@@ -15,10 +15,26 @@ import java.time.LocalDateTime;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @AllArgsConstructor
 public class CheckInOut {
+
+    // verification of check-ins taken while the face service was unavailable; absent when verified at check-in
+    public static final String VERIFICATION_PENDING = "pending";
+    public static final String VERIFICATION_VERIFIED = "verified";
+    public static final String VERIFICATION_MISMATCH = "mismatch";
+    public static final String VERIFICATION_FAILED = "unverifiable";
+
     private String type; // "checkin" or "checkout"
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss", timezone = "Asia/Kolkata")
 //    private LocalDateTime timestamp;
     private long timestampEpoch;
     private String checkinImgUrl; // Only used for checkin type
+    private String eventId; // Client event id of logs ingested from kiosks, used to drop replays
+    private String verification;
+
+    public CheckInOut(String type, long timestampEpoch, String checkinImgUrl) {
+        this(type, timestampEpoch, checkinImgUrl, null, null);
+    }
 
+    public CheckInOut(String type, long timestampEpoch, String checkinImgUrl, String eventId) {
+        this(type, timestampEpoch, checkinImgUrl, eventId, null);
+    }
 }
@@ -8,6 +8,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -19,6 +21,7 @@ import java.util.List;
 @NoArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Document("daily_attendance")
+@CompoundIndex(name = "employeeId_dateEpoch", def = "{'employeeId': 1, 'dateEpoch': 1}", unique = true)
 public class DailyAttendance {
     @Id
     @JsonIgnore
@@ -26,6 +29,7 @@ public class DailyAttendance {
     private String employeeId;
 //    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss", timezone = "Asia/Kolkata")
 //    private LocalDateTime date;
+    @Indexed // whole-day reads of the presence index
     private long dateEpoch;
     private List<CheckInOut> logs;
 }
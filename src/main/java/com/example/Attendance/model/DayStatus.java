@@ -0,0 +1,43 @@
+package com.example.Attendance.model;
+
+import com.example.Attendance.exception.CustomException;
+import org.springframework.http.HttpStatus;
+
+// Day statuses stored in the summaries, each backed by one 31-bit mask in AttendanceMonthBucket
+public enum DayStatus {
+    PRESENT("Present", "presentMask"),
+    ABSENT("Absent", "absentMask"),
+    LEAVE("Leave", "leaveMask"),
+    LOP("LOP", "lopMask"),
+    WEEKLY_OFF("Weekly Off", "weeklyOffMask");
+
+    private final String label;
+    private final String maskField;
+
+    DayStatus(String label, String maskField) {
+        this.label = label;
+        this.maskField = maskField;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getMaskField() {
+        return maskField;
+    }
+
+    public static DayStatus fromLabel(String label) {
+        for (DayStatus status : values()) {
+            if (status.label.equalsIgnoreCase(label)) {
+                return status;
+            }
+        }
+        throw new CustomException("Unsupported attendance status: " + label, HttpStatus.BAD_REQUEST);
+    }
+
+    // Bit for a day of month (1..31)
+    public static int dayBit(int dayOfMonth) {
+        return 1 << (dayOfMonth - 1);
+    }
+}
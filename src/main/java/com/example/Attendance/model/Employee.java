@@ -2,6 +2,7 @@ package com.example.Attendance.model;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -11,11 +12,13 @@ import java.util.List;
 @Setter
 @Document(collection = "employees")
 public class Employee {
+    @Indexed
     private String employeeId;
     private String name;
     private String employeeImgUrl;
     private LocalDate joiningDate;
     private List<String> weeklyOffs;
     private List<String> assignTo;
+    @Indexed
     private String companyId;
 }
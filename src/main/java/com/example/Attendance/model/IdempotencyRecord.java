@@ -0,0 +1,29 @@
+package com.example.Attendance.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Response of a request sent with an Idempotency-Key, shared between instances; removed by Mongo at expiresAt
+@Document(collection = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public static final int IN_PROGRESS = 0;
+
+    @Id
+    private String id; // e.g. "POST /employee/checkin|<key>"
+    private int status; // HTTP status, IN_PROGRESS while the original request runs
+    private String fingerprint; // of the original request; a different request with the same key is refused
+    private String contentType;
+    private byte[] body;
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
@@ -0,0 +1,28 @@
+package com.example.Attendance.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Progress of a batch job run; everything up to and including lastKey has been processed
+@Document(collection = "job_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobCheckpoint {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    private String id; // e.g. "weekend-marking_2025-04"
+    private String status;
+    private String lastKey;
+    private long processed;
+    private Instant startedAt;
+    private Instant updatedAt;
+}
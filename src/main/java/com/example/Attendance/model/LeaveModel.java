@@ -1,12 +1,14 @@
 package com.example.Attendance.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Document(collection = "Leaves")
+@CompoundIndex(name = "employeeId_status_leaveDates", def = "{'employeeId': 1, 'status': 1, 'leaveDates': 1}")
 public class LeaveModel {
     @Id
     private String id;
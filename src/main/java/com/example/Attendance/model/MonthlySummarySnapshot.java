@@ -0,0 +1,33 @@
+package com.example.Attendance.model;
+
+import com.example.Attendance.dto.MonthlyAttendanceSummaryDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Frozen MonthlyAttendanceSummaryDTO of a month that has ended; summary is unset while invalidated
+@Document(collection = "attendance_summary_snapshots")
+@CompoundIndex(name = "year_month", def = "{'year': 1, 'month': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlySummarySnapshot {
+
+    @Id
+    private String id; // e.g. "emp002_2025-04"
+    private String employeeId;
+    private int year;
+    private int month;
+    private MonthlyAttendanceSummaryDTO summary;
+    private Instant closedAt;
+    private long version; // bumped by every invalidation, a save only lands on the version it read
+
+    public static String snapshotId(String employeeId, int year, int month) {
+        return String.format("%s_%04d-%02d", employeeId, year, month);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.Attendance.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// A check-in accepted while the face service was unavailable, with the photo to verify it against later
+@Document(collection = "pending_verifications")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingVerification {
+    @Id
+    private String id;
+    private String employeeId;
+    private long dateEpoch;
+    private long timestampEpoch; // of the check-in log
+    private String filename;
+    private String contentType;
+    private byte[] image;
+    private int attempts;
+    private Instant createdAt;
+    @Indexed
+    private Instant nextAttemptAt; // pushed back exponentially after each failed attempt
+}
@@ -3,6 +3,7 @@ package com.example.Attendance.model;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
@@ -10,6 +11,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class RegisteredUser {
     @Id
     private String id;
+    @Indexed
     private String empId;
     private String name;
     private String imgUrl;
@@ -0,0 +1,21 @@
+package com.example.Attendance.repository;
+
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+// Storage of per-day attendance statuses, selected with attendance.summary.storage (legacy | bucketed)
+public interface AttendanceSummaryStore {
+
+    void setDays(String employeeId, Map<LocalDate, DayAttendanceMeta> days);
+
+    void setDaysIfAbsent(String employeeId, Map<LocalDate, DayAttendanceMeta> days);
+
+    // setDaysIfAbsent for many employees at once, written as unordered bulk writes
+    void setDaysIfAbsent(Map<String, Map<LocalDate, DayAttendanceMeta>> daysByEmployee);
+
+    // Days of one month keyed by day of month; empty if the employee has no summary at all
+    Optional<Map<String, DayAttendanceMeta>> findMonth(String employeeId, int year, int month);
+}
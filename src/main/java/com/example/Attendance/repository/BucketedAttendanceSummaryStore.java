@@ -0,0 +1,323 @@
+package com.example.Attendance.repository;
+
+import com.example.Attendance.exception.CustomException;
+import com.example.Attendance.model.AttendanceMonthBucket;
+import com.example.Attendance.model.DayStatus;
+import com.example.Attendance.model.JobCheckpoint;
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// One attendance_summary_months document per employee-month, day statuses packed into 31-bit masks
+@RequiredArgsConstructor
+public class BucketedAttendanceSummaryStore implements AttendanceSummaryStore {
+
+    private static final int MAX_CAS_ATTEMPTS = 5;
+    // job_checkpoints entry of AttendanceSummaryMigrationService; COMPLETED once every legacy summary is copied
+    public static final String MIGRATION_CHECKPOINT_ID = "summary-bucket-migration";
+    // A completed migration is re-read this often, so a rerun started on another instance is noticed
+    private static final long MIGRATION_RECHECK_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final MongoTemplate mongoTemplate;
+    private final LegacyAttendanceSummaryStore legacyStore; // read fallback until the migration has completed
+
+    private volatile boolean migrated;
+    private volatile long migratedCheckedAt;
+
+    @Override
+    public void setDays(String employeeId, Map<LocalDate, DayAttendanceMeta> days) {
+        if (days.isEmpty()) return;
+
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        groupByMonth(days).forEach((yearMonth, monthDays) -> {
+            MonthChange change = MonthChange.of(monthDays, 0);
+            writes.add(new UpdateOneModel<>(
+                    new Document("_id", bucketId(employeeId, yearMonth)),
+                    change.toUpdate(employeeId, yearMonth),
+                    new UpdateOptions().upsert(true)));
+        });
+
+        if (writes.size() == 1) {
+            UpdateOneModel<Document> write = (UpdateOneModel<Document>) writes.get(0);
+            collection().updateOne(write.getFilter(), write.getUpdate(), write.getOptions());
+        } else {
+            collection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        }
+    }
+
+    @Override
+    public void setDaysIfAbsent(String employeeId, Map<LocalDate, DayAttendanceMeta> days) {
+        groupByMonth(days).forEach((yearMonth, monthDays) -> setMonthIfAbsent(employeeId, yearMonth, monthDays));
+    }
+
+    @Override
+    public void setDaysIfAbsent(Map<String, Map<LocalDate, DayAttendanceMeta>> daysByEmployee) {
+        // One bucket per employee-month, compare-and-set against the masks read in one query
+        Map<String, Map.Entry<String, YearMonth>> buckets = new LinkedHashMap<>();
+        Map<String, Map<LocalDate, DayAttendanceMeta>> bucketDays = new HashMap<>();
+        daysByEmployee.forEach((employeeId, days) -> groupByMonth(days).forEach((yearMonth, monthDays) -> {
+            String id = bucketId(employeeId, yearMonth);
+            buckets.put(id, Map.entry(employeeId, yearMonth));
+            bucketDays.put(id, monthDays);
+        }));
+        if (buckets.isEmpty()) return;
+
+        Map<String, AttendanceMonthBucket> current = mongoTemplate
+                .find(Query.query(Criteria.where("_id").in(buckets.keySet())), AttendanceMonthBucket.class).stream()
+                .collect(Collectors.toMap(AttendanceMonthBucket::getId, bucket -> bucket));
+
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        buckets.forEach((id, owner) -> {
+            AttendanceMonthBucket bucket = current.get(id);
+            MonthChange change = MonthChange.of(bucketDays.get(id), bucket == null ? 0 : bucket.getOccupiedMask());
+            if (change.touched == 0) return;
+            writes.add(new UpdateOneModel<>(casFilter(id, bucket), change.toUpdate(owner.getKey(), owner.getValue()),
+                    new UpdateOptions().upsert(bucket == null)));
+        });
+        if (writes.isEmpty()) return;
+
+        boolean allApplied;
+        try {
+            BulkWriteResult result = collection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+            allApplied = result.getMatchedCount() + result.getUpserts().size() == writes.size();
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+            }
+            allApplied = false;
+        }
+
+        // Some bucket changed after it was read; redo every bucket one at a time (idempotent)
+        if (!allApplied) {
+            buckets.forEach((id, owner) -> setMonthIfAbsent(owner.getKey(), owner.getValue(), bucketDays.get(id)));
+        }
+    }
+
+    @Override
+    public Optional<Map<String, DayAttendanceMeta>> findMonth(String employeeId, int year, int month) {
+        AttendanceMonthBucket bucket = mongoTemplate.findById(AttendanceMonthBucket.bucketId(employeeId, year, month), AttendanceMonthBucket.class);
+        if (migrationCompleted()) {
+            if (bucket != null) return Optional.of(decode(bucket));
+        } else {
+            // A live write may have created the bucket before the migration copied the month: legacy days
+            // fill in under the bucket's own days
+            Optional<Map<String, DayAttendanceMeta>> legacyMonth = legacyStore.findMonth(employeeId, year, month);
+            if (bucket != null || legacyMonth.isPresent()) {
+                Map<String, DayAttendanceMeta> days = new TreeMap<>(Comparator.comparingInt(Integer::parseInt));
+                legacyMonth.orElse(Map.of()).forEach((day, meta) -> {
+                    try {
+                        days.put(String.valueOf(Integer.parseInt(day)), meta);
+                    } catch (NumberFormatException e) {
+                        // Unreadable legacy day, skipped like the migration does
+                    }
+                });
+                if (bucket != null) days.putAll(decode(bucket));
+                return Optional.of(new LinkedHashMap<>(days));
+            }
+        }
+
+        boolean hasBuckets = mongoTemplate.exists(Query.query(Criteria.where("employeeId").is(employeeId)), AttendanceMonthBucket.class);
+        return hasBuckets ? Optional.of(new HashMap<>()) : Optional.empty();
+    }
+
+    // Read on every call until the migration has completed, then once per MIGRATION_RECHECK_NANOS: a rerun
+    // sets the checkpoint back to RUNNING and legacy days must be merged in again until it completes
+    private boolean migrationCompleted() {
+        if (!migrated || System.nanoTime() - migratedCheckedAt > MIGRATION_RECHECK_NANOS) {
+            migrated = mongoTemplate.exists(Query.query(Criteria.where("_id").is(MIGRATION_CHECKPOINT_ID)
+                    .and("status").is(JobCheckpoint.COMPLETED)), JobCheckpoint.class);
+            migratedCheckedAt = System.nanoTime();
+        }
+        return migrated;
+    }
+
+    // A migration run started here; other instances notice it on their next recheck
+    public void migrationStarted() {
+        migrated = false;
+    }
+
+    // Migration: inserts whole buckets for months that have none yet and merges the rest without overwriting
+    public int importDays(String employeeId, Map<LocalDate, DayAttendanceMeta> days) {
+        Map<YearMonth, Map<LocalDate, DayAttendanceMeta>> byMonth = groupByMonth(days);
+        if (byMonth.isEmpty()) return 0;
+
+        Query existingQuery = Query.query(Criteria.where("employeeId").is(employeeId));
+        existingQuery.fields().include("_id");
+        Set<String> existingIds = mongoTemplate.find(existingQuery, AttendanceMonthBucket.class).stream()
+                .map(AttendanceMonthBucket::getId)
+                .collect(Collectors.toSet());
+
+        List<WriteModel<Document>> inserts = new ArrayList<>();
+        List<YearMonth> insertedMonths = new ArrayList<>();
+        byMonth.forEach((yearMonth, monthDays) -> {
+            if (existingIds.contains(bucketId(employeeId, yearMonth))) {
+                setMonthIfAbsent(employeeId, yearMonth, monthDays);
+            } else {
+                inserts.add(new InsertOneModel<>(MonthChange.of(monthDays, 0).toBucket(employeeId, yearMonth)));
+                insertedMonths.add(yearMonth);
+            }
+        });
+
+        if (!inserts.isEmpty()) {
+            try {
+                collection().bulkWrite(inserts, new BulkWriteOptions().ordered(false));
+            } catch (MongoBulkWriteException e) {
+                // A live write created the bucket in the meantime; merge into it instead
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+                    YearMonth yearMonth = insertedMonths.get(error.getIndex());
+                    setMonthIfAbsent(employeeId, yearMonth, byMonth.get(yearMonth));
+                }
+            }
+        }
+        return byMonth.size();
+    }
+
+    private void setMonthIfAbsent(String employeeId, YearMonth yearMonth, Map<LocalDate, DayAttendanceMeta> monthDays) {
+        String id = bucketId(employeeId, yearMonth);
+
+        // Compare-and-set on the masks read, so days filled concurrently are never overwritten
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            AttendanceMonthBucket current = mongoTemplate.findById(id, AttendanceMonthBucket.class);
+            MonthChange change = MonthChange.of(monthDays, current == null ? 0 : current.getOccupiedMask());
+            if (change.touched == 0) return;
+
+            try {
+                UpdateResult result = collection().updateOne(casFilter(id, current), change.toUpdate(employeeId, yearMonth),
+                        new UpdateOptions().upsert(current == null));
+                if (current == null || result.getMatchedCount() > 0) return;
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw e;
+            }
+        }
+        throw new CustomException("Attendance summary was modified concurrently, please retry", HttpStatus.CONFLICT);
+    }
+
+    // Matches the bucket only while its masks are still the ones read (or while it does not exist)
+    private Document casFilter(String id, AttendanceMonthBucket current) {
+        Document filter = new Document("_id", id);
+        if (current == null) {
+            filter.append(DayStatus.PRESENT.getMaskField(), new Document("$exists", false));
+        } else {
+            for (DayStatus status : DayStatus.values()) {
+                filter.append(status.getMaskField(), current.getMask(status));
+            }
+        }
+        return filter;
+    }
+
+    private Map<String, DayAttendanceMeta> decode(AttendanceMonthBucket bucket) {
+        Map<String, String> leaveIds = bucket.getLeaveIds() == null ? Map.of() : bucket.getLeaveIds();
+        Map<String, DayAttendanceMeta> days = new LinkedHashMap<>();
+        for (int day = 1; day <= 31; day++) {
+            int bit = DayStatus.dayBit(day);
+            for (DayStatus status : DayStatus.values()) {
+                if ((bucket.getMask(status) & bit) != 0) {
+                    String key = String.valueOf(day);
+                    days.put(key, new DayAttendanceMeta(status.getLabel(), leaveIds.get(key)));
+                    break;
+                }
+            }
+        }
+        return days;
+    }
+
+    private Map<YearMonth, Map<LocalDate, DayAttendanceMeta>> groupByMonth(Map<LocalDate, DayAttendanceMeta> days) {
+        Map<YearMonth, Map<LocalDate, DayAttendanceMeta>> byMonth = new TreeMap<>();
+        days.forEach((date, meta) -> byMonth.computeIfAbsent(YearMonth.from(date), ym -> new TreeMap<>()).put(date, meta));
+        return byMonth;
+    }
+
+    private String bucketId(String employeeId, YearMonth yearMonth) {
+        return AttendanceMonthBucket.bucketId(employeeId, yearMonth.getYear(), yearMonth.getMonthValue());
+    }
+
+    private MongoCollection<Document> collection() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(AttendanceMonthBucket.class));
+    }
+
+    // Bit masks for the days of one month being written
+    private static class MonthChange {
+        int touched;
+        final int[] assigned = new int[DayStatus.values().length];
+        final Map<String, String> leaveIds = new LinkedHashMap<>();
+
+        // Days whose bit is already in skipMask are left out
+        static MonthChange of(Map<LocalDate, DayAttendanceMeta> monthDays, int skipMask) {
+            MonthChange change = new MonthChange();
+            monthDays.forEach((date, meta) -> {
+                int bit = DayStatus.dayBit(date.getDayOfMonth());
+                if ((skipMask & bit) != 0) return;
+                change.touched |= bit;
+                change.assigned[DayStatus.fromLabel(meta.getStatus()).ordinal()] |= bit;
+                if (meta.getLeaveId() != null) {
+                    change.leaveIds.put(String.valueOf(date.getDayOfMonth()), meta.getLeaveId());
+                }
+            });
+            return change;
+        }
+
+        // Clears the touched days from every mask, then sets each day in its status mask
+        Document toUpdate(String employeeId, YearMonth yearMonth) {
+            Document bit = new Document();
+            for (DayStatus status : DayStatus.values()) {
+                Document ops = new Document("and", ~touched);
+                if (assigned[status.ordinal()] != 0) {
+                    ops.append("or", assigned[status.ordinal()]);
+                }
+                bit.append(status.getMaskField(), ops);
+            }
+
+            Document set = new Document();
+            Document unset = new Document();
+            for (int day = 1; day <= 31; day++) {
+                if ((touched & DayStatus.dayBit(day)) == 0) continue;
+                String key = String.valueOf(day);
+                if (leaveIds.containsKey(key)) set.append("leaveIds." + key, leaveIds.get(key));
+                else unset.append("leaveIds." + key, "");
+            }
+
+            Document update = new Document("$setOnInsert", new Document("employeeId", employeeId)
+                    .append("year", yearMonth.getYear())
+                    .append("month", yearMonth.getMonthValue()))
+                    .append("$bit", bit);
+            if (!set.isEmpty()) update.append("$set", set);
+            if (!unset.isEmpty()) update.append("$unset", unset);
+            return update;
+        }
+
+        Document toBucket(String employeeId, YearMonth yearMonth) {
+            Document bucket = new Document("_id", AttendanceMonthBucket.bucketId(employeeId, yearMonth.getYear(), yearMonth.getMonthValue()))
+                    .append("employeeId", employeeId)
+                    .append("year", yearMonth.getYear())
+                    .append("month", yearMonth.getMonthValue());
+            for (DayStatus status : DayStatus.values()) {
+                bucket.append(status.getMaskField(), assigned[status.ordinal()]);
+            }
+            if (!leaveIds.isEmpty()) bucket.append("leaveIds", new Document(new LinkedHashMap<String, Object>(leaveIds)));
+            return bucket;
+        }
+    }
+}
@@ -5,13 +5,14 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DailyAttendanceRepository extends MongoRepository<DailyAttendance, String> {
+public interface DailyAttendanceRepository extends MongoRepository<DailyAttendance, String>, DailyAttendanceRepositoryCustom {
 
-    boolean existsByEmployeeId(String employeeId);
+    Optional<DailyAttendance> findFirstByEmployeeIdOrderByDateEpochAsc(String employeeId);
 
 
 
@@ -19,5 +20,7 @@ public interface DailyAttendanceRepository extends MongoRepository<DailyAttendan
 
     List<DailyAttendance> findByEmployeeIdInAndDateEpoch(List<String> teamMembers, long todayEpoch);
 
+    List<DailyAttendance> findByEmployeeIdInAndDateEpochIn(Collection<String> employeeIds, Collection<Long> dateEpochs);
+
     List<DailyAttendance> findByEmployeeIdAndDateEpochBetween(String employeeId, long startEpoch, long endEpoch);
 }
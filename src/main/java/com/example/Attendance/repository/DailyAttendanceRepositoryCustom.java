@@ -0,0 +1,35 @@
+package com.example.Attendance.repository;
+
+import com.example.Attendance.model.CheckInOut;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface DailyAttendanceRepositoryCustom {
+
+    // Appends a checkin log in one upsert; false if the day's last log is already a checkin
+    boolean appendCheckin(String employeeId, long dateEpoch, CheckInOut log);
+
+    // appendCheckin for several employees on the same day in one unordered bulk write; returns who got the log
+    Set<String> appendCheckins(long dateEpoch, Map<String, CheckInOut> logsByEmployee);
+
+    // Appends each log to its day (upsert), keeping logs sorted by time; a log whose eventId the day
+    // already has is skipped. Returns the indexes of the logs that were skipped as duplicates.
+    Set<Integer> appendEvents(List<DayLog> dayLogs);
+
+    record DayLog(String employeeId, long dateEpoch, CheckInOut log) {}
+
+    // Sets the verification of the pending check-in log at that time; false if there is none
+    boolean setCheckinVerification(String employeeId, long dateEpoch, long timestampEpoch, String verification);
+
+    // Appends a checkout log in one update; false if the day's last log is not a checkin
+    boolean appendCheckout(String employeeId, long dateEpoch, CheckInOut log);
+
+    // Replaces a log's checkinImgUrl, e.g. a pending image reference once the upload is done
+    boolean replaceCheckinImgUrl(String employeeId, long dateEpoch, String currentUrl, String newUrl);
+
+    // dateEpoch of every day with at least one log in [startEpoch, endEpoch], per employee, in one aggregation
+    Map<String, List<Long>> findAttendedDayEpochs(Collection<String> employeeIds, long startEpoch, long endEpoch);
+}
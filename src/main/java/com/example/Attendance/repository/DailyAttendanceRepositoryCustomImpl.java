@@ -0,0 +1,179 @@
+package com.example.Attendance.repository;
+
+import com.example.Attendance.model.CheckInOut;
+import com.example.Attendance.model.DailyAttendance;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.*;
+
+@RequiredArgsConstructor
+public class DailyAttendanceRepositoryCustomImpl implements DailyAttendanceRepositoryCustom {
+
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean appendCheckin(String employeeId, long dateEpoch, CheckInOut log) {
+        // Matches the day only while its last log is not a checkin. When it is, the upsert
+        // tries to insert a second document for the same day and the unique
+        // (employeeId, dateEpoch) index rejects it.
+        Query query = new BasicQuery(dayFilter(employeeId, dateEpoch)
+                .append("$expr", lastLogType("$ne", "checkin")));
+        try {
+            mongoTemplate.upsert(query, new Update().push("logs", log), DailyAttendance.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Set<String> appendCheckins(long dateEpoch, Map<String, CheckInOut> logsByEmployee) {
+        if (logsByEmployee.isEmpty()) return Set.of();
+
+        List<String> employeeIds = new ArrayList<>(logsByEmployee.keySet());
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyAttendance.class);
+        for (String employeeId : employeeIds) {
+            Query query = new BasicQuery(dayFilter(employeeId, dateEpoch)
+                    .append("$expr", lastLogType("$ne", "checkin")));
+            bulk.upsert(query, new Update().push("logs", logsByEmployee.get(employeeId)));
+        }
+
+        Set<String> appended = new LinkedHashSet<>(employeeIds);
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Same as appendCheckin: a duplicate key means that employee is already checked in
+            for (BulkWriteError error : e.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+                appended.remove(employeeIds.get(error.getIndex()));
+            }
+        }
+        return appended;
+    }
+
+    @Override
+    public Set<Integer> appendEvents(List<DayLog> dayLogs) {
+        if (dayLogs.isEmpty()) return Set.of();
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyAttendance.class);
+        for (DayLog dayLog : dayLogs) {
+            bulk.upsert(eventQuery(dayLog), eventUpdate(dayLog));
+        }
+
+        Set<Integer> duplicates = new HashSet<>();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+                if (!appendEventAfterConflict(dayLogs.get(error.getIndex()))) {
+                    duplicates.add(error.getIndex());
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    // E11000 either means the eventId is already on the day (the filter missed, the upsert hit the unique
+    // day index) or the upsert lost a race with a concurrent insert of the same day. Only the first is a
+    // duplicate; the second is retried now that the day exists. False if it was a duplicate.
+    private boolean appendEventAfterConflict(DayLog dayLog) {
+        for (int attempt = 0; attempt < MAX_UPSERT_ATTEMPTS; attempt++) {
+            Query day = Query.query(Criteria.where("employeeId").is(dayLog.employeeId())
+                    .and("dateEpoch").is(dayLog.dateEpoch())
+                    .and("logs.eventId").is(dayLog.log().getEventId()));
+            if (mongoTemplate.exists(day, DailyAttendance.class)) {
+                return false;
+            }
+            try {
+                mongoTemplate.upsert(eventQuery(dayLog), eventUpdate(dayLog), DailyAttendance.class);
+                return true;
+            } catch (DuplicateKeyException e) {
+                // Raced again; re-read
+            }
+        }
+        throw new IllegalStateException("Could not append event " + dayLog.log().getEventId() + " of " + dayLog.employeeId());
+    }
+
+    // With the eventId already on the day, the filter misses and the upsert hits the unique day index
+    private Query eventQuery(DayLog dayLog) {
+        return Query.query(Criteria.where("employeeId").is(dayLog.employeeId())
+                .and("dateEpoch").is(dayLog.dateEpoch())
+                .and("logs.eventId").ne(dayLog.log().getEventId()));
+    }
+
+    private Update eventUpdate(DayLog dayLog) {
+        return new Update().push("logs").sort(Sort.by("timestampEpoch")).each(dayLog.log());
+    }
+
+    @Override
+    public boolean appendCheckout(String employeeId, long dateEpoch, CheckInOut log) {
+        Query query = new BasicQuery(dayFilter(employeeId, dateEpoch)
+                .append("$expr", lastLogType("$eq", "checkin")));
+        UpdateResult result = mongoTemplate.updateFirst(query, new Update().push("logs", log), DailyAttendance.class);
+        return result.getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean replaceCheckinImgUrl(String employeeId, long dateEpoch, String currentUrl, String newUrl) {
+        Query query = Query.query(Criteria.where("employeeId").is(employeeId).and("dateEpoch").is(dateEpoch));
+        Update update = new Update()
+                .set("logs.$[log].checkinImgUrl", newUrl)
+                .filterArray(Criteria.where("log.checkinImgUrl").is(currentUrl));
+        return mongoTemplate.updateFirst(query, update, DailyAttendance.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public boolean setCheckinVerification(String employeeId, long dateEpoch, long timestampEpoch, String verification) {
+        Query query = Query.query(Criteria.where("employeeId").is(employeeId).and("dateEpoch").is(dateEpoch));
+        Update update = new Update()
+                .set("logs.$[log].verification", verification)
+                .filterArray(Criteria.where("log.timestampEpoch").is(timestampEpoch)
+                        .and("log.type").is("checkin")
+                        .and("log.verification").is(CheckInOut.VERIFICATION_PENDING));
+        return mongoTemplate.updateFirst(query, update, DailyAttendance.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public Map<String, List<Long>> findAttendedDayEpochs(Collection<String> employeeIds, long startEpoch, long endEpoch) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("employeeId").in(employeeIds)
+                        .and("dateEpoch").gte(startEpoch).lte(endEpoch)
+                        .and("logs.0").exists(true)),
+                Aggregation.sort(Sort.Direction.ASC, "dateEpoch"),
+                Aggregation.group("employeeId").push("dateEpoch").as("days"));
+
+        Map<String, List<Long>> result = new HashMap<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, DailyAttendance.class, Document.class)) {
+            List<Long> days = group.getList("days", Number.class).stream().map(Number::longValue).toList();
+            result.put(group.getString("_id"), days);
+        }
+        return result;
+    }
+
+    private Document dayFilter(String employeeId, long dateEpoch) {
+        return new Document("employeeId", employeeId).append("dateEpoch", dateEpoch);
+    }
+
+    // { <op>: [ { $arrayElemAt: ["$logs.type", -1] }, <type> ] }
+    private Document lastLogType(String operator, String type) {
+        Document lastType = new Document("$arrayElemAt", List.of("$logs.type", -1));
+        return new Document(operator, List.of(lastType, type));
+    }
+}
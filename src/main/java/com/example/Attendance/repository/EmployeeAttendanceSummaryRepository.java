@@ -7,7 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface EmployeeAttendanceSummaryRepository extends MongoRepository<EmployeeAttendanceSummary, String> {
+public interface EmployeeAttendanceSummaryRepository extends MongoRepository<EmployeeAttendanceSummary, String>, EmployeeAttendanceSummaryRepositoryCustom {
     Optional<EmployeeAttendanceSummary> findByEmployeeId(String employeeId);
 }
 
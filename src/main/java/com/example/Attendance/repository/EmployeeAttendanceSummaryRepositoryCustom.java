@@ -0,0 +1,18 @@
+package com.example.Attendance.repository;
+
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public interface EmployeeAttendanceSummaryRepositoryCustom {
+
+    // Overwrites the given days with one $set on their years.<y>.months.<m>.days.<d> paths (upsert)
+    void setDays(String employeeId, Map<LocalDate, DayAttendanceMeta> days);
+
+    // Same as setDays, but leaves days that already have a status untouched
+    void setDaysIfAbsent(String employeeId, Map<LocalDate, DayAttendanceMeta> days);
+
+    // setDaysIfAbsent for many employees in one unordered bulk write
+    void setDaysIfAbsent(Map<String, Map<LocalDate, DayAttendanceMeta>> daysByEmployee);
+}
@@ -0,0 +1,84 @@
+package com.example.Attendance.repository;
+
+import com.example.Attendance.model.EmployeeAttendanceSummary;
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class EmployeeAttendanceSummaryRepositoryCustomImpl implements EmployeeAttendanceSummaryRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void setDays(String employeeId, Map<LocalDate, DayAttendanceMeta> days) {
+        if (days.isEmpty()) return;
+
+        Document fields = new Document();
+        days.forEach((date, meta) -> fields.append(dayPath(date), toDocument(meta)));
+
+        collection().updateOne(summaryFilter(employeeId), new Document("$set", fields), new UpdateOptions().upsert(true));
+    }
+
+    @Override
+    public void setDaysIfAbsent(String employeeId, Map<LocalDate, DayAttendanceMeta> days) {
+        if (days.isEmpty()) return;
+
+        collection().updateOne(summaryFilter(employeeId), ifAbsentUpdate(days), new UpdateOptions().upsert(true));
+    }
+
+    @Override
+    public void setDaysIfAbsent(Map<String, Map<LocalDate, DayAttendanceMeta>> daysByEmployee) {
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        daysByEmployee.forEach((employeeId, days) -> {
+            if (days.isEmpty()) return;
+            writes.add(new UpdateOneModel<>(summaryFilter(employeeId), ifAbsentUpdate(days), new UpdateOptions().upsert(true)));
+        });
+        if (writes.isEmpty()) return;
+
+        collection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+    }
+
+    // Pipeline update so each path keeps its current value when one exists:
+    // { $set: { <path>: { $ifNull: ["$<path>", <meta>] } } }
+    private List<Document> ifAbsentUpdate(Map<LocalDate, DayAttendanceMeta> days) {
+        Document fields = new Document();
+        days.forEach((date, meta) -> {
+            String path = dayPath(date);
+            fields.append(path, new Document("$ifNull", List.of("$" + path, toDocument(meta))));
+        });
+        return List.of(new Document("$set", fields));
+    }
+
+    private MongoCollection<Document> collection() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(EmployeeAttendanceSummary.class));
+    }
+
+    // Both fields are equality matches, so an upsert seeds a new summary with them
+    private Document summaryFilter(String employeeId) {
+        return new Document("_id", "summary_" + employeeId).append("employeeId", employeeId);
+    }
+
+    static String dayPath(LocalDate date) {
+        return "years." + date.getYear() + ".months." + date.getMonthValue() + ".days." + date.getDayOfMonth();
+    }
+
+    private Document toDocument(DayAttendanceMeta meta) {
+        Document doc = new Document("status", meta.getStatus());
+        if (meta.getLeaveId() != null) {
+            doc.append("leaveId", meta.getLeaveId());
+        }
+        return doc;
+    }
+}
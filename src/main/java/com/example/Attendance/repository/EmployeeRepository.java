@@ -2,14 +2,36 @@ package com.example.Attendance.repository;
 
 import com.example.Attendance.model.Employee;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface EmployeeRepository extends MongoRepository<Employee, String> {
+    // Fields the attendance service actually uses
+    String DIRECTORY_FIELDS = "{ 'employeeId': 1, 'name': 1, 'joiningDate': 1, 'weeklyOffs': 1, 'assignTo': 1, 'companyId': 1 }";
+
     Optional<Employee> findByEmployeeId(String employeeId);
     List<Employee> findByEmployeeIdIn(List<String> employeeIds);
     List<Employee> findByCompanyId(String companyId);
+
+    @Query(value = "{ 'employeeId': ?0 }", fields = DIRECTORY_FIELDS)
+    Optional<Employee> findDirectoryEntryByEmployeeId(String employeeId);
+
+    @Query(value = "{ 'employeeId': { $in: ?0 } }", fields = DIRECTORY_FIELDS)
+    List<Employee> findDirectoryEntriesByEmployeeIdIn(Collection<String> employeeIds);
+
+    @Query(value = "{ 'companyId': ?0 }", fields = DIRECTORY_FIELDS)
+    List<Employee> findDirectoryEntriesByCompanyId(String companyId);
+
+    // Cursor-backed; close the stream when done
+    @Query(value = "{ 'companyId': ?0 }", fields = DIRECTORY_FIELDS)
+    Stream<Employee> streamDirectoryEntriesByCompanyId(String companyId);
+
+    @Query(value = "{}", fields = DIRECTORY_FIELDS)
+    Stream<Employee> streamAllDirectoryEntries();
 }
@@ -10,4 +10,7 @@ import java.util.List;
 public interface LeaveRepository extends MongoRepository<LeaveModel, String> {
     List<LeaveModel> findByEmployeeIdAndStatusAndLeaveDatesBetween(
         String employeeId, String status, java.time.LocalDate start, java.time.LocalDate end);
+
+    List<LeaveModel> findByEmployeeIdInAndStatusAndLeaveDatesBetween(
+        java.util.Collection<String> employeeIds, String status, java.time.LocalDate start, java.time.LocalDate end);
 } 
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example.Attendance.repository;
+
+import com.example.Attendance.model.EmployeeAttendanceSummary;
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Single employee_attendance_summary document per employee with nested years → months → days maps
+@RequiredArgsConstructor
+public class LegacyAttendanceSummaryStore implements AttendanceSummaryStore {
+
+    private final EmployeeAttendanceSummaryRepository summaryRepo;
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void setDays(String employeeId, Map<LocalDate, DayAttendanceMeta> days) {
+        summaryRepo.setDays(employeeId, days);
+    }
+
+    @Override
+    public void setDaysIfAbsent(String employeeId, Map<LocalDate, DayAttendanceMeta> days) {
+        summaryRepo.setDaysIfAbsent(employeeId, days);
+    }
+
+    @Override
+    public void setDaysIfAbsent(Map<String, Map<LocalDate, DayAttendanceMeta>> daysByEmployee) {
+        summaryRepo.setDaysIfAbsent(daysByEmployee);
+    }
+
+    @Override
+    public Optional<Map<String, DayAttendanceMeta>> findMonth(String employeeId, int year, int month) {
+        // Project only the requested month instead of the whole history
+        Query query = Query.query(Criteria.where("employeeId").is(employeeId));
+        query.fields().include("employeeId").include("years." + year + ".months." + month);
+
+        EmployeeAttendanceSummary summary = mongoTemplate.findOne(query, EmployeeAttendanceSummary.class);
+        if (summary == null) return Optional.empty();
+
+        Map<String, DayAttendanceMeta> days = Optional.ofNullable(summary.getYears())
+                .map(years -> years.get(String.valueOf(year)))
+                .map(EmployeeAttendanceSummary.YearAttendance::getMonths)
+                .map(months -> months.get(String.valueOf(month)))
+                .map(EmployeeAttendanceSummary.MonthAttendance::getDays)
+                .orElseGet(HashMap::new);
+        return Optional.of(days);
+    }
+}
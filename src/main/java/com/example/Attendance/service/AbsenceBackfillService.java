@@ -0,0 +1,144 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.model.AttendanceBackfill;
+import com.example.Attendance.model.DailyAttendance;
+import com.example.Attendance.model.Employee;
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+import com.example.Attendance.repository.AttendanceSummaryStore;
+import com.example.Attendance.repository.DailyAttendanceRepository;
+import com.example.Attendance.util.EpochUtil;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Marks the days between an employee's joining date and their first check-in as Absent / Weekly Off,
+ * in the background. Runs on registration and again on the first check-in (for the days in between);
+ * after that the attendance_backfill marker is completed and the check-in path only does a set lookup.
+ * The first check-in is the earliest stored attendance day, so backdated kiosk uploads are covered too.
+ */
+@Service
+public class AbsenceBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(AbsenceBackfillService.class);
+    private static final ZoneId ZONE_ID = ZoneId.of("Asia/Kolkata");
+
+    private final MongoTemplate mongoTemplate;
+    private final EmployeeService employeeService;
+    private final DailyAttendanceRepository dailyRepo;
+    private final AttendanceSummaryStore summaryStore;
+    private final MonthlySummarySnapshotService summarySnapshots;
+    private final ExecutorService executor;
+
+    // Employees whose backfill is completed, and the ones with a backfill running on this instance
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public AbsenceBackfillService(MongoTemplate mongoTemplate, EmployeeService employeeService,
+                                  DailyAttendanceRepository dailyRepo, AttendanceSummaryStore summaryStore,
+                                  MonthlySummarySnapshotService summarySnapshots, ExecutorService checkinExecutor) {
+        this.mongoTemplate = mongoTemplate;
+        this.employeeService = employeeService;
+        this.dailyRepo = dailyRepo;
+        this.summaryStore = summaryStore;
+        this.summarySnapshots = summarySnapshots;
+        this.executor = checkinExecutor;
+    }
+
+    @PostConstruct
+    public void loadCompleted() {
+        Query query = Query.query(Criteria.where("completed").is(true));
+        query.fields().include("_id");
+        mongoTemplate.find(query, AttendanceBackfill.class).forEach(marker -> completed.add(marker.getEmployeeId()));
+    }
+
+    public void onRegistered(String employeeId) {
+        submit(employeeId, false);
+    }
+
+    public void onCheckin(String employeeId) {
+        if (completed.contains(employeeId)) return;
+        submit(employeeId, true);
+    }
+
+    private void submit(String employeeId, boolean checkin) {
+        if (!inFlight.add(employeeId)) return;
+        CompletableFuture.runAsync(() -> backfill(employeeId, checkin), executor)
+                .whenComplete((result, error) -> {
+                    inFlight.remove(employeeId);
+                    if (error != null) {
+                        log.error("Absence backfill for {} failed: {}", employeeId, error.getMessage());
+                    }
+                });
+    }
+
+    private void backfill(String employeeId, boolean checkin) {
+        AttendanceBackfill marker = mongoTemplate.findById(employeeId, AttendanceBackfill.class);
+        if (marker != null && marker.isCompleted()) {
+            completed.add(employeeId);
+            return;
+        }
+
+        LocalDate through = LocalDate.now(ZONE_ID).minusDays(1);
+
+        // Backfill up to the first attended day, which a backdated kiosk upload may have put in the past
+        if (checkin) {
+            Optional<DailyAttendance> firstDay = dailyRepo.findFirstByEmployeeIdOrderByDateEpochAsc(employeeId);
+            if (firstDay.isPresent()) {
+                LocalDate firstAttended = EpochUtil.fromEpochSecondsToDate(firstDay.get().getDateEpoch(), ZONE_ID);
+                if (firstAttended.isBefore(through.plusDays(1))) {
+                    through = firstAttended.minusDays(1);
+                }
+            }
+        }
+
+        Optional<Employee> employee = employeeService.getEmployeeByEmpId(employeeId);
+        if (employee.isEmpty() || employee.get().getJoiningDate() == null) {
+            log.warn("Absence backfill for {} skipped, no joining date in the employee directory", employeeId);
+            return;
+        }
+
+        LocalDate from = employee.get().getJoiningDate();
+        if (marker != null && marker.getBackfilledThrough() != null && marker.getBackfilledThrough().isAfter(from.minusDays(1))) {
+            from = marker.getBackfilledThrough().plusDays(1);
+        }
+        Set<String> weeklyOffs = Optional.ofNullable(employee.get().getWeeklyOffs()).orElse(List.of())
+                .stream()
+                .map(String::toUpperCase)
+                .collect(Collectors.toSet());
+
+        Map<LocalDate, DayAttendanceMeta> days = new LinkedHashMap<>();
+        for (LocalDate date = from; !date.isAfter(through); date = date.plusDays(1)) {
+            days.put(date, new DayAttendanceMeta(weeklyOffs.contains(date.getDayOfWeek().name()) ? "Weekly Off" : "Absent"));
+        }
+
+        // Never overwrites: days marked meanwhile (leave, bulk marking) keep their status
+        summaryStore.setDaysIfAbsent(Map.of(employeeId, days));
+        // The backfilled months may be closed and frozen already
+        summarySnapshots.invalidate(employeeId, days.keySet());
+
+        LocalDate backfilledThrough = marker != null && marker.getBackfilledThrough() != null
+                && marker.getBackfilledThrough().isAfter(through) ? marker.getBackfilledThrough() : through;
+        saveMarker(employeeId, backfilledThrough, checkin);
+    }
+
+    private void saveMarker(String employeeId, LocalDate backfilledThrough, boolean complete) {
+        mongoTemplate.save(new AttendanceBackfill(employeeId, backfilledThrough, complete, Instant.now()));
+        if (complete) {
+            completed.add(employeeId);
+        }
+    }
+}
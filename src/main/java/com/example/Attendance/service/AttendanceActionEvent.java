@@ -0,0 +1,5 @@
+package com.example.Attendance.service;
+
+// Published in-process after a check-in or checkout has been written; type is "checkin" or "checkout"
+public record AttendanceActionEvent(String employeeId, String type, long timestampEpoch, long dateEpoch) {
+}
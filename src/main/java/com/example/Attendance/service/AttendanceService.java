@@ -3,15 +3,16 @@ package com.example.Attendance.service;
 import com.example.Attendance.dto.DayAttendanceResponse;
 import com.example.Attendance.dto.LogEntryDTO;
 import com.example.Attendance.exception.CustomException;
+import com.example.Attendance.exception.FaceServiceUnavailableException;
 import com.example.Attendance.model.*;
 import com.example.Attendance.repository.DailyAttendanceRepository;
-import com.example.Attendance.repository.EmployeeAttendanceSummaryRepository;
+import com.example.Attendance.repository.AttendanceSummaryStore;
 import com.example.Attendance.util.EpochUtil;
 import com.example.Attendance.util.MinIOService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
@@ -22,8 +23,12 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 import com.example.Attendance.dto.EmployeeDetailsDTO;
 import org.springframework.web.client.HttpClientErrorException;
@@ -42,16 +47,30 @@ public class AttendanceService {
     @Value("${PYTHON_FACE_RECOGNITION}")
     private String PYTHON_FACE_RECOGNITION;
 
+    // Accept single check-ins as pending verification while the face service is unavailable
+    @Value("${attendance.face.provisional-checkins:true}")
+    private boolean provisionalCheckins;
+
     private final DailyAttendanceRepository dailyRepo;
-    private final EmployeeAttendanceSummaryRepository summaryRepo;
+    private final AttendanceSummaryStore summaryStore;
     private final FaceVerificationService faceVerificationService;
     private final MinIOService minIOService;
     private final RegisteredUserRepository registeredUserRepository;
     private final EmployeeService employeeService;
+    private final RegisteredUserIndex registeredUserIndex;
+    private final ExecutorService checkinExecutor;
+    private final CheckinImageUploadQueue uploadQueue;
+    private final MonthlySummarySnapshotService summarySnapshots;
+    private final WeekendMarkingJob weekendMarkingJob;
+    private final AbsenceBackfillService absenceBackfill;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TodayPresenceIndex presenceIndex;
+    private final ImageNormalizer imageNormalizer;
+    private final FaceVerificationReconciler faceReconciler;
 
     // Helper method to check if employee is registered
     public boolean isEmployeeRegistered(String empId) {
-        return registeredUserRepository.findByEmpId(empId).isPresent();
+        return registeredUserIndex.contains(empId);
     }
 
     public String checkOut(String employeeId) {
@@ -65,44 +84,21 @@ public class AttendanceService {
         long currentEpoch = EpochUtil.currentEpochSeconds();
         long todayEpoch = EpochUtil.toEpochSeconds(LocalDateTime.now(zone).toLocalDate().atStartOfDay(), zone);
 
-        // 3. Find today's attendance record
-        DailyAttendance daily = dailyRepo.findByEmployeeIdAndDateEpoch(employeeId, todayEpoch)
-                .orElseThrow(() -> new CustomException("No check-in found for today", HttpStatus.NOT_FOUND));
-
-        // 4. Validate last log is a check-in
-        List<CheckInOut> logs = daily.getLogs();
-        if (logs.isEmpty() || !"checkin".equalsIgnoreCase(logs.get(logs.size() - 1).getType())) {
-            throw new CustomException("No check-in found for today", HttpStatus.BAD_REQUEST);
+        // 3. Append checkout log only if today's last log is a check-in
+        if (!dailyRepo.appendCheckout(employeeId, todayEpoch, new CheckInOut("checkout", currentEpoch, null))) {
+            HttpStatus status = dailyRepo.findByEmployeeIdAndDateEpoch(employeeId, todayEpoch).isPresent()
+                    ? HttpStatus.BAD_REQUEST
+                    : HttpStatus.NOT_FOUND;
+            throw new CustomException("No check-in found for today", status);
         }
+        eventPublisher.publishEvent(new AttendanceActionEvent(employeeId, "checkout", currentEpoch, todayEpoch));
 
-        // 5. Add checkout log with epoch timestamp
-        logs.add(new CheckInOut("checkout", currentEpoch, null));
-
-        // 6. Save and return
-        dailyRepo.save(daily);
         return "Check-out recorded!";
     }
 
 
     private void updateSummaryOnCheckIn(String employeeId, LocalDate date) {
-        String year = String.valueOf(date.getYear());
-        String month = String.valueOf(date.getMonthValue());
-        String day = String.valueOf(date.getDayOfMonth());
-
-        EmployeeAttendanceSummary summary = summaryRepo.findByEmployeeId(employeeId)
-                .orElse(new EmployeeAttendanceSummary("summary_" + employeeId, employeeId, new HashMap<>()));
-
-        // Handle years → months → days
-        Map<String, EmployeeAttendanceSummary.YearAttendance> years = summary.getYears();
-        EmployeeAttendanceSummary.YearAttendance yearData = years.computeIfAbsent(year, y -> new EmployeeAttendanceSummary.YearAttendance(new HashMap<>()));
-
-        Map<String, EmployeeAttendanceSummary.MonthAttendance> months = yearData.getMonths();
-        EmployeeAttendanceSummary.MonthAttendance monthData = months.computeIfAbsent(month, m -> new EmployeeAttendanceSummary.MonthAttendance(new HashMap<>()));
-
-        Map<String, EmployeeAttendanceSummary.DayAttendanceMeta> days = monthData.getDays();
-        days.put(day, new EmployeeAttendanceSummary.DayAttendanceMeta("Present"));
-
-        summaryRepo.save(summary);
+        summaryStore.setDays(employeeId, Map.of(date, new EmployeeAttendanceSummary.DayAttendanceMeta("Present")));
     }
 
 
@@ -183,7 +179,8 @@ public class AttendanceService {
                 .map(log -> new LogEntryDTO(
                         log.getType(),
                         EpochUtil.fromEpochSeconds(log.getTimestampEpoch(), zone).toString(),
-                        log.getCheckinImgUrl()
+                        log.getCheckinImgUrl(),
+                        log.getVerification()
                 ))
                 .collect(Collectors.toList());
 
@@ -201,16 +198,9 @@ public class AttendanceService {
             throw new CustomException("User is not registered", HttpStatus.NOT_FOUND);
         }
 
-        EmployeeAttendanceSummary summary = summaryRepo.findByEmployeeId(employeeId)
+        Map<String, EmployeeAttendanceSummary.DayAttendanceMeta> days = summaryStore
+                .findMonth(employeeId, Integer.parseInt(year), Integer.parseInt(month))
                 .orElseThrow(() -> new CustomException("No summary found", HttpStatus.NOT_FOUND));
-
-        EmployeeAttendanceSummary.YearAttendance yearData = summary.getYears()
-                .getOrDefault(year, new EmployeeAttendanceSummary.YearAttendance());
-                
-        EmployeeAttendanceSummary.MonthAttendance monthData = yearData.getMonths()
-                .getOrDefault(month, new EmployeeAttendanceSummary.MonthAttendance());
-
-        Map<String, EmployeeAttendanceSummary.DayAttendanceMeta> days = monthData.getDays();
         
         // Calculate summary from daily records
         int presentDays = 0;
@@ -248,85 +238,24 @@ public class AttendanceService {
             throw new CustomException("User is not registered", HttpStatus.NOT_FOUND);
         }
 
-        EmployeeAttendanceSummary summary = summaryRepo.findByEmployeeId(employeeId)
-                .orElse(new EmployeeAttendanceSummary("summary_" + employeeId, employeeId, new HashMap<>()));
-
+        Map<LocalDate, EmployeeAttendanceSummary.DayAttendanceMeta> days = new LinkedHashMap<>();
         for (String dateStr : dateStrings) {
             LocalDate date = LocalDate.parse(dateStr);
-            String year = String.valueOf(date.getYear());
-            String month = String.valueOf(date.getMonthValue());
-            String day = String.valueOf(date.getDayOfMonth());
-
-            Map<String, EmployeeAttendanceSummary.YearAttendance> years = summary.getYears();
-            EmployeeAttendanceSummary.YearAttendance yearData = years.computeIfAbsent(year, y -> new EmployeeAttendanceSummary.YearAttendance(new HashMap<>()));
-
-            Map<String, EmployeeAttendanceSummary.MonthAttendance> months = yearData.getMonths();
-            EmployeeAttendanceSummary.MonthAttendance monthData = months.computeIfAbsent(month, m -> new EmployeeAttendanceSummary.MonthAttendance(new HashMap<>()));
-
-            Map<String, EmployeeAttendanceSummary.DayAttendanceMeta> days = monthData.getDays();
             EmployeeAttendanceSummary.DayAttendanceMeta dayMeta = new EmployeeAttendanceSummary.DayAttendanceMeta(status, null);
-            
+
             // Set leaveId if provided, regardless of status
             if (leaveId != null && !leaveId.isEmpty()) {
                 dayMeta.setLeaveId(leaveId);
             }
-            
-            days.put(day, dayMeta);
-        }
-
-        summaryRepo.save(summary);
-    }
-
 
-    // mark previous days as absent
-    public void markPastDaysAbsentIfFirstCheckin(String employeeId) {
-        // Check if employee is registered
-        if (!isEmployeeRegistered(employeeId)) {
-            throw new CustomException("User is not registered", HttpStatus.NOT_FOUND);
+            days.put(date, dayMeta);
         }
 
-        // Get employee details from external service
-        Optional<Employee> employeeDetails = employeeService.getEmployeeByEmpId(employeeId);
-        LocalDate joiningDate = employeeDetails.get().getJoiningDate();
-        List<String> weeklyOffs = employeeDetails.get().getWeeklyOffs()
-                .stream()
-                .map(String::toUpperCase)
-                .toList();
-
-
-        boolean hasPreviousAttendance = dailyRepo.existsByEmployeeId(employeeId);
-        if (hasPreviousAttendance) return;
-
-        EmployeeAttendanceSummary summary = summaryRepo.findByEmployeeId(employeeId)
-                .orElse(new EmployeeAttendanceSummary("summary_" + employeeId, employeeId, new HashMap<>()));
-
-        LocalDate today = LocalDate.now();
-        for (LocalDate date = joiningDate; date.isBefore(today); date = date.plusDays(1)) {
-            String dayName = date.getDayOfWeek().toString();
-            String year = String.valueOf(date.getYear());
-            String month = String.valueOf(date.getMonthValue());
-            String day = String.valueOf(date.getDayOfMonth());
-
-            Map<String, EmployeeAttendanceSummary.YearAttendance> years = summary.getYears();
-            EmployeeAttendanceSummary.YearAttendance yearData = years.computeIfAbsent(year, y -> new EmployeeAttendanceSummary.YearAttendance(new HashMap<>()));
-
-            Map<String, EmployeeAttendanceSummary.MonthAttendance> months = yearData.getMonths();
-            EmployeeAttendanceSummary.MonthAttendance monthData = months.computeIfAbsent(month, m -> new EmployeeAttendanceSummary.MonthAttendance(new HashMap<>()));
-
-            Map<String, EmployeeAttendanceSummary.DayAttendanceMeta> days = monthData.getDays();
-
-            if (weeklyOffs.contains(dayName)) {
-                days.put(day, new EmployeeAttendanceSummary.DayAttendanceMeta("Weekly Off"));
-            } else {
-                days.put(day, new EmployeeAttendanceSummary.DayAttendanceMeta("Absent"));
-            }
-        }
-
-        summaryRepo.save(summary);
+        summaryStore.setDays(employeeId, days);
+        summarySnapshots.invalidate(employeeId, days.keySet());
     }
 
 
-
     // Mark weekends for the user for a month
     public void markWeekendsForEmployee(String employeeId, int year, int month) {
         // Check if employee is registered
@@ -338,54 +267,24 @@ public class AttendanceService {
         Optional<Employee> employeeDetails = employeeService.getEmployeeByEmpId(employeeId);
         List<String> weeklyOffs = employeeDetails.get().getWeeklyOffs();
 
-        EmployeeAttendanceSummary summary = summaryRepo.findByEmployeeId(employeeId)
-                .orElse(new EmployeeAttendanceSummary("summary_" + employeeId, employeeId, new HashMap<>()));
-
         YearMonth yearMonth = YearMonth.of(year, month);
         int daysInMonth = yearMonth.lengthOfMonth();
 
-        String yearStr = String.valueOf(year);
-        String monthStr = String.valueOf(month);
-
-        EmployeeAttendanceSummary.YearAttendance yearAttendance =
-                summary.getYears().computeIfAbsent(yearStr, y -> new EmployeeAttendanceSummary.YearAttendance(new HashMap<>()));
-
-        EmployeeAttendanceSummary.MonthAttendance monthAttendance =
-                yearAttendance.getMonths().computeIfAbsent(monthStr, m -> new EmployeeAttendanceSummary.MonthAttendance(new HashMap<>()));
-
-        Map<String, EmployeeAttendanceSummary.DayAttendanceMeta> daysMap = monthAttendance.getDays();
-
+        Map<LocalDate, EmployeeAttendanceSummary.DayAttendanceMeta> weekendDays = new LinkedHashMap<>();
         for (int day = 1; day <= daysInMonth; day++) {
             LocalDate date = LocalDate.of(year, month, day);
             String dayOfWeek = date.getDayOfWeek().toString();
 
             if (weeklyOffs.contains(dayOfWeek)) {
-                String dayKey = String.valueOf(day);
-                daysMap.putIfAbsent(dayKey, new EmployeeAttendanceSummary.DayAttendanceMeta("Weekly Off"));
+                weekendDays.put(date, new EmployeeAttendanceSummary.DayAttendanceMeta("Weekly Off"));
             }
         }
 
-        summaryRepo.save(summary);
+        summaryStore.setDaysIfAbsent(employeeId, weekendDays);
     }
 
     public void markAllEmployeesWeekendsForCurrentMonth() {
-        List<RegisteredUser> allUsers = registeredUserRepository.findAll();
-
-        YearMonth yearMonth = YearMonth.now();
-        int year = yearMonth.getYear();
-        int month = yearMonth.getMonthValue();
-
-        for (RegisteredUser user : allUsers) {
-            markWeekendsForEmployee(user.getEmpId(), year, month);
-        }
-    }
-
-
-
-    @Scheduled(cron = "0 0 0 1 * *") // Every 1st of the month at midnight
-    public void autoMarkWeekends() {
-        System.out.println("Running scheduled weekend marker...");
-        markAllEmployeesWeekendsForCurrentMonth();
+        weekendMarkingJob.run(YearMonth.now());
     }
 
     public String registerEmployee(String empId, String empName, MultipartFile empImage) throws IOException {
@@ -406,6 +305,12 @@ public class AttendanceService {
         // 4. Call FaceRecognition service
         Map<String, Object> response = faceVerificationService.registerUser(empImage, empId, empName, imgUrl);
 
+        // 5. The face service stores the registration; pick it up in the local index
+        registeredUserIndex.refresh(empId);
+        if (registeredUserIndex.contains(empId)) {
+            absenceBackfill.onRegistered(empId);
+        }
+
         return response.get("message").toString();
     }
 
@@ -415,56 +320,81 @@ public class AttendanceService {
             throw new CustomException("User is not registered", HttpStatus.NOT_FOUND);
         }
 
-        byte[] fileBytes = file.getBytes();
+        MultipartFile newFile = normalizedImage(file);
 
-        // 2. Call face recognition API
-        Map<String, Object> recognitionResult = faceVerificationService.verifyByEmpId(file, empId);
+        // 2. Get current time as epoch and start of day in IST
+        ZoneId zone = ZoneId.of("Asia/Kolkata");
+        long checkinEpoch = EpochUtil.currentEpochSeconds();
+        long todayEpoch = EpochUtil.toEpochSeconds(LocalDateTime.now(zone).toLocalDate().atStartOfDay(), zone);
 
-        // 3. Check if employee was found
+        // 3. Start face recognition, the check-in image upload and the lookups together
+        CompletableFuture<Map<String, Object>> recognition = runAsync(() -> faceVerificationService.verifyByEmpId(newFile, empId));
+        CompletableFuture<String> upload = uploadCheckinImage(empId, newFile);
+        CompletableFuture<Optional<Employee>> employeeLookup = runAsync(() -> employeeService.getEmployeeByEmpId(empId));
+
+        // 4. Check if employee was found; the speculative upload is discarded otherwise
+        Map<String, Object> recognitionResult;
+        try {
+            recognitionResult = await(recognition);
+        } catch (FaceServiceUnavailableException e) {
+            if (!provisionalCheckins) {
+                discardUpload(upload);
+                throw e;
+            }
+            return recordProvisionalCheckin(empId, newFile, upload, employeeLookup, checkinEpoch, todayEpoch);
+        } catch (IOException | RuntimeException e) {
+            discardUpload(upload);
+            throw e;
+        }
         if (!"match".equalsIgnoreCase((String) recognitionResult.get("status"))) {
+            discardUpload(upload);
             return Map.of(
                     "status", "not found",
                     "message", "Employee not recognized"
             );
         }
 
-        // 4. Get employee details
         String employeeId = (String) recognitionResult.get("empId");
-        Optional<Employee> employeeDetails = employeeService.getEmployeeByEmpId(employeeId);
-        String name = employeeDetails.get().getName();
-
-        // 5. Get current time as epoch
-        long checkinEpoch = EpochUtil.currentEpochSeconds();
+        String name;
+        String checkinImgUrl;
+        // Until the check-in is recorded, any failure discards the speculative upload
+        try {
+            if (!empId.equals(employeeId)) {
+                // Recognized as someone else: redo the lookups and upload for that employee
+                discardUpload(upload);
+                upload = uploadCheckinImage(employeeId, newFile);
+                employeeLookup = runAsync(() -> employeeService.getEmployeeByEmpId(employeeId));
+            }
 
-        // 6. Get start of day in UTC (for matching today's attendance)
-        ZoneId zone = ZoneId.of("Asia/Kolkata");
-        long todayEpoch = EpochUtil.toEpochSeconds(LocalDateTime.now(zone).toLocalDate().atStartOfDay(), zone);
+            // 5. Check if already checked in and not checked out
+            if (isCheckedIn(employeeId, todayEpoch)) {
+                discardUpload(upload);
+                return Map.of(
+                        "status", "error",
+                        "message", "Please check out before checking in again"
+                );
+            }
 
-        Optional<DailyAttendance> existingAttendance = dailyRepo.findByEmployeeIdAndDateEpoch(employeeId, todayEpoch);
-
-        if (existingAttendance.isPresent()) {
-            List<CheckInOut> logs = existingAttendance.get().getLogs();
-            if (!logs.isEmpty()) {
-                CheckInOut lastLog = logs.get(logs.size() - 1);
-                if ("checkin".equalsIgnoreCase(lastLog.getType())) {
-                    return Map.of(
-                            "status", "error",
-                            "message", "Please check out before checking in again"
-                    );
-                }
+            // 6. Get employee details and the uploaded check-in image
+            name = await(employeeLookup).get().getName();
+            checkinImgUrl = await(upload);
+
+            // 7. Record daily attendance using epoch
+            if (!recordDailyAttendance(employeeId, name, checkinImgUrl, checkinEpoch, todayEpoch)) {
+                discardCheckinImage(checkinImgUrl);
+                return Map.of(
+                        "status", "error",
+                        "message", "Please check out before checking in again"
+                );
             }
+        } catch (IOException | RuntimeException e) {
+            discardUpload(upload);
+            throw e;
         }
+        afterCheckin(employeeId, todayEpoch, checkinEpoch);
+        queuePendingUpload(employeeId, todayEpoch, checkinImgUrl, newFile);
 
-        // 7. Rebuild MultipartFile for MinIO
-        MultipartFile newFile = buildMultipartFileFromBytes(file, fileBytes);
-
-        // 8. Upload check-in image
-        String checkinImgUrl = minIOService.getCheckinImgUrl(employeeId, newFile);
-
-        // 9. Record daily attendance using epoch
-        recordDailyAttendance(employeeId, name, checkinImgUrl, checkinEpoch, todayEpoch);
-
-        // 10. Return success response
+        // 8. Return success response
         return Map.of(
                 "status", "present",
                 "employee", name,
@@ -479,14 +409,14 @@ public class AttendanceService {
             throw new CustomException("User is not registered", HttpStatus.NOT_FOUND);
         }
 
-        byte[] fileBytes = file.getBytes();
+        MultipartFile newFile = normalizedImage(file);
 
         // 2. Get employee IDs under this manager
         Optional<Employee> employee = employeeService.getEmployeeByEmpId(empId);
         List<String> empIdList = employee.get().getAssignTo();
 
         // 3. Call face recognition API
-        Map<String, Object> recognitionResult = faceVerificationService.verifyByEmpIdList(file, empIdList);
+        Map<String, Object> recognitionResult = faceVerificationService.verifyByEmpIdList(newFile, empIdList);
 
         // 4. Check if employee was found
         if (!"match".equalsIgnoreCase((String) recognitionResult.get("status"))) {
@@ -496,42 +426,48 @@ public class AttendanceService {
             );
         }
 
-        // 5. Get employee details
-        String employeeId = (String) recognitionResult.get("empId");
-        Optional<Employee> employeeDetails = employeeService.getEmployeeByEmpId(employeeId);
-        String name = employeeDetails.get().getName();
-
-        // 6. Get current epoch time and today’s start (in IST)
+        // 5. Get current epoch time and today’s start (in IST)
         ZoneId zone = ZoneId.of("Asia/Kolkata");
         long checkinEpoch = EpochUtil.currentEpochSeconds();
         long todayEpoch = EpochUtil.toEpochSeconds(LocalDateTime.now(zone).toLocalDate().atStartOfDay(), zone);
 
-        // 7. Check if already checked in and not checked out
-        Optional<DailyAttendance> existingAttendance = dailyRepo.findByEmployeeIdAndDateEpoch(employeeId, todayEpoch);
-
-        if (existingAttendance.isPresent()) {
-            List<CheckInOut> logs = existingAttendance.get().getLogs();
-            if (!logs.isEmpty()) {
-                CheckInOut lastLog = logs.get(logs.size() - 1);
-                if ("checkin".equalsIgnoreCase(lastLog.getType())) {
-                    return Map.of(
-                            "status", "error",
-                            "message", "Please check out before checking in again"
-                    );
-                }
+        // 6. Look up the recognized employee and upload the image together
+        String employeeId = (String) recognitionResult.get("empId");
+        CompletableFuture<Optional<Employee>> employeeLookup = runAsync(() -> employeeService.getEmployeeByEmpId(employeeId));
+        CompletableFuture<String> upload = uploadCheckinImage(employeeId, newFile);
+
+        String name;
+        String checkinImgUrl;
+        // Until the check-in is recorded, any failure discards the upload
+        try {
+            // 7. Check if already checked in and not checked out
+            if (isCheckedIn(employeeId, todayEpoch)) {
+                discardUpload(upload);
+                return Map.of(
+                        "status", "error",
+                        "message", "Please check out before checking in again"
+                );
             }
-        }
-
-        // 8. Rebuild MultipartFile for MinIO
-        MultipartFile newFile = buildMultipartFileFromBytes(file, fileBytes);
 
-        // 9. Upload check-in image
-        String checkinImgUrl = minIOService.getCheckinImgUrl(employeeId, newFile);
+            name = await(employeeLookup).get().getName();
+            checkinImgUrl = await(upload);
 
-        // 10. Record daily attendance using epoch
-        recordDailyAttendance(employeeId, name, checkinImgUrl, checkinEpoch, todayEpoch);
+            // 8. Record daily attendance using epoch
+            if (!recordDailyAttendance(employeeId, name, checkinImgUrl, checkinEpoch, todayEpoch)) {
+                discardCheckinImage(checkinImgUrl);
+                return Map.of(
+                        "status", "error",
+                        "message", "Please check out before checking in again"
+                );
+            }
+        } catch (IOException | RuntimeException e) {
+            discardUpload(upload);
+            throw e;
+        }
+        afterCheckin(employeeId, todayEpoch, checkinEpoch);
+        queuePendingUpload(employeeId, todayEpoch, checkinImgUrl, newFile);
 
-        // 11. Return success response
+        // 9. Return success response
         return Map.of(
                 "status", "present",
                 "employee", name,
@@ -541,43 +477,166 @@ public class AttendanceService {
     }
 
 
-    public Map<String, Object> manualAttendanceMarking(String empId, MultipartFile file) {
-        // 1. Check if employee is registered
-        if (!isEmployeeRegistered(empId)) {
+    // One photo of several team members: everyone of the manager's team recognized in it is checked in
+    public Map<String, Object> handleGroupCheckin(MultipartFile file, String managerId) throws IOException {
+        // 1. Check if manager is registered
+        if (!isEmployeeRegistered(managerId)) {
             throw new CustomException("User is not registered", HttpStatus.NOT_FOUND);
         }
 
-        // 2. Get employee details
-        Optional<Employee> employeeDetails = employeeService.getEmployeeByEmpId(empId);
-        String empName = employeeDetails.get().getName();
+        MultipartFile newFile = normalizedImage(file);
 
-        // 3. Get current epoch timestamp and today's epoch (start of day in IST)
         ZoneId zone = ZoneId.of("Asia/Kolkata");
         long checkinEpoch = EpochUtil.currentEpochSeconds();
         long todayEpoch = EpochUtil.toEpochSeconds(LocalDateTime.now(zone).toLocalDate().atStartOfDay(), zone);
 
-        // 4. Check if already checked in and not checked out
-        Optional<DailyAttendance> existingAttendance = dailyRepo.findByEmployeeIdAndDateEpoch(empId, todayEpoch);
-        if (existingAttendance.isPresent()) {
-            List<CheckInOut> logs = existingAttendance.get().getLogs();
-            if (!logs.isEmpty()) {
-                CheckInOut lastLog = logs.get(logs.size() - 1);
-                if ("checkin".equalsIgnoreCase(lastLog.getType())) {
-                    return Map.of(
-                            "status", "error",
-                            "message", "Please check out before checking in again"
-                    );
+        // 2. Recognize every face and upload the photo once (stored under the manager), together
+        CompletableFuture<Map<String, Object>> recognition = runAsync(() -> faceVerificationService.verifyAll(newFile));
+        CompletableFuture<String> upload = runAsync(() -> minIOService.getCheckinImgUrl(managerId, newFile));
+
+        Set<String> recognized;
+        Set<String> teamIds;
+        List<String> matched;
+        Map<String, Employee> members;
+        Map<String, String> skipped = new LinkedHashMap<>();
+        Set<String> recorded = Set.of();
+        // Until the check-ins are recorded, any failure discards the upload
+        try {
+            List<String> team = employeeService.getEmployeeByEmpId(managerId)
+                    .map(Employee::getAssignTo)
+                    .orElse(List.of());
+            recognized = recognizedEmpIds(await(recognition));
+
+            // 3. Keep the faces that belong to the team
+            teamIds = new LinkedHashSet<>(team);
+            matched = recognized.stream().filter(teamIds::contains).toList();
+
+            // 4. Directory entries of the matched members in one query, today's status from the presence index (confirmed in Mongo)
+            members = employeeService.getEmployeesByEmpIds(matched).stream()
+                    .collect(Collectors.toMap(Employee::getEmployeeId, e -> e, (a, b) -> a));
+            Set<String> checkedIn = presenceIndex.checkedIn(matched, todayEpoch);
+
+            List<String> eligible = new ArrayList<>();
+            for (String memberId : matched) {
+                if (!isEmployeeRegistered(memberId)) skipped.put(memberId, "Not registered for attendance");
+                else if (!members.containsKey(memberId)) skipped.put(memberId, "Not found in the employee directory");
+                else if (checkedIn.contains(memberId)) skipped.put(memberId, "Please check out before checking in again");
+                else eligible.add(memberId);
+            }
+
+            // 5. Record all check-ins with one bulk write; the photo is discarded when nobody was checked in
+            if (!eligible.isEmpty()) {
+                String checkinImgUrl = await(upload);
+                Map<String, CheckInOut> logs = new LinkedHashMap<>();
+                eligible.forEach(memberId -> logs.put(memberId, new CheckInOut("checkin", checkinEpoch, checkinImgUrl)));
+                recorded = dailyRepo.appendCheckins(todayEpoch, logs);
+            }
+            if (recorded.isEmpty()) {
+                discardUpload(upload);
+            }
+        } catch (IOException | RuntimeException e) {
+            discardUpload(upload);
+            throw e;
+        }
+        recorded.forEach(memberId -> afterCheckin(memberId, todayEpoch, checkinEpoch));
+        List<String> notInTeam = recognized.stream().filter(id -> !teamIds.contains(id)).toList();
+
+        // 6. One result per team member
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String memberId : teamIds) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("emp_id", memberId);
+            Employee member = members.get(memberId);
+            if (member != null) result.put("employee", member.getName());
+            if (recorded.contains(memberId)) {
+                result.put("status", "present");
+                result.put("message", "Attendance marked successfully");
+            } else {
+                result.put("status", "skipped");
+                result.put("message", !recognized.contains(memberId) ? "Not recognized in the photo"
+                        : skipped.getOrDefault(memberId, "Please check out before checking in again"));
+            }
+            results.add(result);
+        }
+
+        return Map.of(
+                "status", recorded.isEmpty() ? "not found" : "present",
+                "message", recorded.size() + " of " + teamIds.size() + " team members marked present",
+                "members", results,
+                "notInTeam", notInTeam
+        );
+    }
+
+    // verify/all answers with a single match ({status, empId}) or a list of faces under matches/results/faces
+    private Set<String> recognizedEmpIds(Map<String, Object> response) {
+        Set<String> empIds = new LinkedHashSet<>();
+        if (response == null) return empIds;
+        addIfMatch(response, empIds);
+        for (String key : List.of("matches", "results", "faces")) {
+            if (response.get(key) instanceof List<?> faces) {
+                for (Object face : faces) {
+                    if (face instanceof Map<?, ?> faceResult) addIfMatch(faceResult, empIds);
                 }
             }
         }
+        return empIds;
+    }
+
+    private void addIfMatch(Map<?, ?> face, Set<String> empIds) {
+        Object status = face.get("status");
+        if (face.get("empId") instanceof String empId && (status == null || "match".equalsIgnoreCase(status.toString()))) {
+            empIds.add(empId);
+        }
+    }
+
+    public Map<String, Object> manualAttendanceMarking(String empId, MultipartFile file) throws IOException {
+        // 1. Check if employee is registered
+        if (!isEmployeeRegistered(empId)) {
+            throw new CustomException("User is not registered", HttpStatus.NOT_FOUND);
+        }
 
-        // 5. Upload check-in image to MinIO
-        String checkinImgUrl = minIOService.getCheckinImgUrl(empId, file);
+        // 2. Get current epoch timestamp and today's epoch (start of day in IST)
+        ZoneId zone = ZoneId.of("Asia/Kolkata");
+        long checkinEpoch = EpochUtil.currentEpochSeconds();
+        long todayEpoch = EpochUtil.toEpochSeconds(LocalDateTime.now(zone).toLocalDate().atStartOfDay(), zone);
 
-        // 6. Record daily attendance using epoch
-        recordDailyAttendance(empId, empName, checkinImgUrl, checkinEpoch, todayEpoch);
+        // 3. Get employee details and upload the image together
+        CompletableFuture<Optional<Employee>> employeeLookup = runAsync(() -> employeeService.getEmployeeByEmpId(empId));
+        MultipartFile image = normalizedImage(file);
+        CompletableFuture<String> upload = uploadCheckinImage(empId, image);
+
+        String empName;
+        String checkinImgUrl;
+        // Until the check-in is recorded, any failure discards the upload
+        try {
+            // 4. Check if already checked in and not checked out
+            if (isCheckedIn(empId, todayEpoch)) {
+                discardUpload(upload);
+                return Map.of(
+                        "status", "error",
+                        "message", "Please check out before checking in again"
+                );
+            }
 
-        // 7. Return success response
+            empName = await(employeeLookup).get().getName();
+            checkinImgUrl = await(upload);
+
+            // 5. Record daily attendance using epoch
+            if (!recordDailyAttendance(empId, empName, checkinImgUrl, checkinEpoch, todayEpoch)) {
+                discardCheckinImage(checkinImgUrl);
+                return Map.of(
+                        "status", "error",
+                        "message", "Please check out before checking in again"
+                );
+            }
+        } catch (IOException | RuntimeException e) {
+            discardUpload(upload);
+            throw e;
+        }
+        afterCheckin(empId, todayEpoch, checkinEpoch);
+        queuePendingUpload(empId, todayEpoch, checkinImgUrl, image);
+
+        // 6. Return success response
         return Map.of(
                 "status", "present",
                 "employee", empName,
@@ -588,11 +647,23 @@ public class AttendanceService {
 
 
     // Helper Methods
-    private MultipartFile buildMultipartFileFromBytes(MultipartFile original, byte[] bytes) {
+
+    // The photo decoded once, upright, downscaled and re-encoded; used for both face verification and storage
+    private MultipartFile normalizedImage(MultipartFile file) throws IOException {
+        ImageNormalizer.NormalizedImage image = imageNormalizer.normalize(file.getBytes(), file.getContentType());
+        String filename = file.getOriginalFilename();
+        if (image.reencoded() && filename != null) {
+            int dot = filename.lastIndexOf('.');
+            filename = (dot > 0 ? filename.substring(0, dot) : filename) + ".jpg";
+        }
+        return buildMultipartFileFromBytes(file, image.bytes(), filename, image.contentType());
+    }
+
+    private MultipartFile buildMultipartFileFromBytes(MultipartFile original, byte[] bytes, String filename, String contentType) {
         return new MultipartFile() {
             @Override public String getName() { return original.getName(); }
-            @Override public String getOriginalFilename() { return original.getOriginalFilename(); }
-            @Override public String getContentType() { return original.getContentType(); }
+            @Override public String getOriginalFilename() { return filename; }
+            @Override public String getContentType() { return contentType; }
             @Override public boolean isEmpty() { return bytes.length == 0; }
             @Override public long getSize() { return bytes.length; }
             @Override public byte[] getBytes() { return bytes; }
@@ -601,25 +672,141 @@ public class AttendanceService {
         };
     }
 
-    private void recordDailyAttendance(String employeeId, String name, String checkinImgUrl, long checkinEpoch, long todayEpoch) {
-        // ✅ Mark backdated absents on first-time check-in
-        markPastDaysAbsentIfFirstCheckin(employeeId);
+    // Whether today's last log is a check-in
+    private boolean isCheckedIn(String employeeId, long todayEpoch) {
+        return presenceIndex.isCheckedIn(employeeId, todayEpoch);
+    }
+
+    private <T> CompletableFuture<T> runAsync(IOSupplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.get();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, checkinExecutor);
+    }
+
+    // Waits for a pipeline stage and rethrows its original exception
+    private <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) throw io.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
 
-        DailyAttendance daily = dailyRepo.findByEmployeeIdAndDateEpoch(employeeId, todayEpoch)
-                .orElse(new DailyAttendance(null, employeeId, todayEpoch, new ArrayList<>()));
+    // Uploads now, or hands out a pending reference when uploads are write-behind (see CheckinImageUploadQueue)
+    private CompletableFuture<String> uploadCheckinImage(String employeeId, MultipartFile image) {
+        if (uploadQueue.isEnabled()) {
+            return CompletableFuture.completedFuture(uploadQueue.newPendingReference());
+        }
+        return runAsync(() -> minIOService.getCheckinImgUrl(employeeId, image));
+    }
 
-        // Create a new CheckInOut log with epoch
-        CheckInOut checkInLog = new CheckInOut("checkin", checkinEpoch, checkinImgUrl);
-        daily.getLogs().add(checkInLog);
+    // Queues the image of a recorded check-in whose URL is still a pending reference
+    private void queuePendingUpload(String employeeId, long todayEpoch, String checkinImgUrl, MultipartFile image) throws IOException {
+        if (uploadQueue.isPending(checkinImgUrl)) {
+            uploadQueue.enqueue(checkinImgUrl, employeeId, todayEpoch, image.getOriginalFilename(), image.getContentType(), image.getBytes());
+        }
+    }
+
+    private void discardCheckinImage(String checkinImgUrl) {
+        if (!uploadQueue.isPending(checkinImgUrl)) {
+            minIOService.deleteCheckinImage(checkinImgUrl);
+        }
+    }
+
+    // Removes a speculatively uploaded image once it is known not to be needed
+    private void discardUpload(CompletableFuture<String> upload) {
+        upload.thenAcceptAsync(this::discardCheckinImage, checkinExecutor);
+    }
+
+    @FunctionalInterface
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    // Face service unavailable: the check-in of the claimed employee is accepted and verified later
+    private Map<String, Object> recordProvisionalCheckin(String empId, MultipartFile image, CompletableFuture<String> upload,
+                                                         CompletableFuture<Optional<Employee>> employeeLookup,
+                                                         long checkinEpoch, long todayEpoch) throws IOException {
+        String name;
+        String checkinImgUrl;
+        // Until the check-in is recorded, any failure discards the upload
+        try {
+            if (isCheckedIn(empId, todayEpoch)) {
+                discardUpload(upload);
+                return Map.of(
+                        "status", "error",
+                        "message", "Please check out before checking in again"
+                );
+            }
+
+            name = await(employeeLookup).get().getName();
+            checkinImgUrl = await(upload);
+
+            // Queued first so a pending log never exists without its verification; cancelled if the log is not stored
+            String pendingId = faceReconciler.enqueue(empId, todayEpoch, checkinEpoch, image.getOriginalFilename(),
+                    image.getContentType(), image.getBytes());
+            boolean recorded;
+            try {
+                recorded = recordDailyAttendance(empId, name, checkinImgUrl, checkinEpoch, todayEpoch, CheckInOut.VERIFICATION_PENDING);
+            } catch (RuntimeException e) {
+                faceReconciler.cancel(pendingId);
+                throw e;
+            }
+            if (!recorded) {
+                faceReconciler.cancel(pendingId);
+                discardCheckinImage(checkinImgUrl);
+                return Map.of(
+                        "status", "error",
+                        "message", "Please check out before checking in again"
+                );
+            }
+        } catch (IOException | RuntimeException e) {
+            discardUpload(upload);
+            throw e;
+        }
+        afterCheckin(empId, todayEpoch, checkinEpoch);
+        queuePendingUpload(empId, todayEpoch, checkinImgUrl, image);
 
-        // Save the updated attendance
-        dailyRepo.save(daily);
+        return Map.of(
+                "status", "pending_verification",
+                "employee", name,
+                "emp_id", empId,
+                "message", "Attendance marked, face verification will follow"
+        );
+    }
 
+    private boolean recordDailyAttendance(String employeeId, String name, String checkinImgUrl, long checkinEpoch, long todayEpoch) {
+        return recordDailyAttendance(employeeId, name, checkinImgUrl, checkinEpoch, todayEpoch, null);
+    }
+
+    private boolean recordDailyAttendance(String employeeId, String name, String checkinImgUrl, long checkinEpoch, long todayEpoch,
+                                          String verification) {
+        // Create a new CheckInOut log with epoch and append it atomically; callers run afterCheckin once it is stored
+        CheckInOut checkInLog = new CheckInOut("checkin", checkinEpoch, checkinImgUrl);
+        checkInLog.setVerification(verification);
+        return dailyRepo.appendCheckin(employeeId, todayEpoch, checkInLog);
+    }
+
+    // Summary, materialized summaries and backfill follow-ups of a recorded check-in; the image stays referenced
+    private void afterCheckin(String employeeId, long todayEpoch, long checkinEpoch) {
         // Convert todayEpoch to LocalDate (in IST) for summary update
         ZoneId zone = ZoneId.of("Asia/Kolkata");
         LocalDate todayDate = EpochUtil.fromEpochSecondsToDate(todayEpoch, zone);
 
         updateSummaryOnCheckIn(employeeId, todayDate);
+        summarySnapshots.invalidate(employeeId, todayDate);
+
+        // Backdated absents on first-time check-in, in the background
+        absenceBackfill.onCheckin(employeeId);
+
+        eventPublisher.publishEvent(new AttendanceActionEvent(employeeId, "checkin", checkinEpoch, todayEpoch));
     }
 
 
@@ -644,19 +831,15 @@ public class AttendanceService {
         ZoneId zone = ZoneId.of("Asia/Kolkata");
         long todayEpoch = EpochUtil.toEpochSeconds(LocalDateTime.now(zone).toLocalDate().atStartOfDay(), zone);
 
-        // 3. Batch fetch attendance records for today
-        List<DailyAttendance> teamAttendance = dailyRepo.findByEmployeeIdInAndDateEpoch(teamMembers, todayEpoch);
+        // 3. Last action of each member today, from the presence index
+        Map<String, TodayPresenceIndex.Presence> lastActions = presenceIndex.lastActions(teamMembers, todayEpoch);
 
-        // 4. Map attendance by employee ID
-        Map<String, DailyAttendance> attendanceMap = teamAttendance.stream()
-                .collect(Collectors.toMap(DailyAttendance::getEmployeeId, attendance -> attendance));
-
-        // 5. Fetch employee details
+        // 4. Fetch employee details
         List<Employee> teamDetails = employeeService.getEmployeesByEmpIds(teamMembers);
         Map<String, Employee> employeeMap = teamDetails.stream()
                 .collect(Collectors.toMap(Employee::getEmployeeId, employee -> employee));
 
-        // 6. Prepare response
+        // 5. Prepare response
         Map<String, Object> response = new HashMap<>();
         List<Map<String, Object>> teamStatus = new ArrayList<>();
 
@@ -669,14 +852,13 @@ public class AttendanceService {
             if (employee == null) continue;
             memberStatus.put("name", employee.getName());
 
-            // Get attendance logs
-            DailyAttendance attendance = attendanceMap.get(empId);
-            if (attendance != null && attendance.getLogs() != null && !attendance.getLogs().isEmpty()) {
-                CheckInOut lastLog = attendance.getLogs().get(attendance.getLogs().size() - 1);
-                memberStatus.put("status", lastLog.getType().equalsIgnoreCase("checkin") ? "checked_in" : "checked_out");
+            // Get today's last action
+            TodayPresenceIndex.Presence lastLog = lastActions.get(empId);
+            if (lastLog != null) {
+                memberStatus.put("status", lastLog.isCheckedIn() ? "checked_in" : "checked_out");
 
                 // Convert timestampEpoch to readable LocalDateTime in IST
-                LocalDateTime lastActionTime = EpochUtil.fromEpochSeconds(lastLog.getTimestampEpoch(), zone);
+                LocalDateTime lastActionTime = EpochUtil.fromEpochSeconds(lastLog.timestampEpoch(), zone);
                 memberStatus.put("lastActionTime", lastActionTime.toString());
             } else {
                 memberStatus.put("status", "not_checked_in");
@@ -702,15 +884,9 @@ public class AttendanceService {
         }
         List<String> teamMembers = manager.get().getAssignTo();
         
-        // Get all registered users
-        List<RegisteredUser> allRegisteredUsers = registeredUserRepository.findAll();
-        Set<String> registeredEmpIds = allRegisteredUsers.stream()
-                .map(RegisteredUser::getEmpId)
-                .collect(Collectors.toSet());
-        
         // Filter team members who are registered for attendance
         List<String> registeredTeamMembers = teamMembers.stream()
-                .filter(registeredEmpIds::contains)
+                .filter(registeredUserIndex::contains)
                 .collect(Collectors.toList());
         
         return Map.of(
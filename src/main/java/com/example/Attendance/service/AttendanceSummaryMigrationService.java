@@ -0,0 +1,115 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.exception.CustomException;
+import com.example.Attendance.model.DayStatus;
+import com.example.Attendance.model.EmployeeAttendanceSummary;
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+import com.example.Attendance.model.JobCheckpoint;
+import com.example.Attendance.repository.BucketedAttendanceSummaryStore;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// Copies employee_attendance_summary documents into month buckets (attendance_summary_months); a run without
+// failures completes the job checkpoint, after which the bucketed store stops reading the legacy summaries
+@Service
+@RequiredArgsConstructor
+public class AttendanceSummaryMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttendanceSummaryMigrationService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final BucketedAttendanceSummaryStore bucketedStore;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public boolean startMigration() {
+        if (!running.compareAndSet(false, true)) return false;
+        Thread.ofVirtual().name("summary-bucket-migration").start(() -> {
+            try {
+                migrateToMonthBuckets();
+            } catch (Exception e) {
+                log.error("Summary bucket migration failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public void migrateToMonthBuckets() {
+        long start = System.currentTimeMillis();
+        int employees = 0;
+        int months = 0;
+        int skippedDays = 0;
+        int failed = 0;
+
+        Instant startedAt = Instant.now();
+        mongoTemplate.save(new JobCheckpoint(BucketedAttendanceSummaryStore.MIGRATION_CHECKPOINT_ID, JobCheckpoint.RUNNING,
+                null, 0, startedAt, startedAt));
+        bucketedStore.migrationStarted();
+
+        try (Stream<EmployeeAttendanceSummary> summaries = mongoTemplate.stream(new Query(), EmployeeAttendanceSummary.class)) {
+            for (EmployeeAttendanceSummary summary : (Iterable<EmployeeAttendanceSummary>) summaries::iterator) {
+                Map<LocalDate, DayAttendanceMeta> days = new LinkedHashMap<>();
+                skippedDays += collectDays(summary, days);
+                try {
+                    months += bucketedStore.importDays(summary.getEmployeeId(), days);
+                    employees++;
+                } catch (Exception e) {
+                    log.warn("Could not migrate attendance summary of {}: {}", summary.getEmployeeId(), e.getMessage());
+                    failed++;
+                }
+            }
+        }
+
+        if (failed == 0) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(BucketedAttendanceSummaryStore.MIGRATION_CHECKPOINT_ID)),
+                    new Update().set("status", JobCheckpoint.COMPLETED).set("processed", employees).set("updatedAt", Instant.now()),
+                    JobCheckpoint.class);
+        } else {
+            log.warn("Summary bucket migration left {} employees unmigrated; legacy summaries stay in use, rerun it", failed);
+        }
+
+        log.info("Summary bucket migration done: {} employees, {} months, {} unreadable days skipped in {} ms",
+                employees, months, skippedDays, System.currentTimeMillis() - start);
+    }
+
+    // Flattens years → months → days into dates; returns how many entries could not be read
+    private int collectDays(EmployeeAttendanceSummary summary, Map<LocalDate, DayAttendanceMeta> days) {
+        if (summary.getYears() == null) return 0;
+        int skipped = 0;
+        for (var year : summary.getYears().entrySet()) {
+            if (year.getValue() == null || year.getValue().getMonths() == null) continue;
+            for (var month : year.getValue().getMonths().entrySet()) {
+                if (month.getValue() == null || month.getValue().getDays() == null) continue;
+                for (var day : month.getValue().getDays().entrySet()) {
+                    try {
+                        LocalDate date = LocalDate.of(Integer.parseInt(year.getKey()),
+                                Integer.parseInt(month.getKey()), Integer.parseInt(day.getKey()));
+                        if (day.getValue() != null && day.getValue().getStatus() != null) {
+                            DayStatus.fromLabel(day.getValue().getStatus());
+                            days.put(date, day.getValue());
+                        }
+                    } catch (NumberFormatException | DateTimeException | CustomException e) {
+                        skipped++;
+                    }
+                }
+            }
+        }
+        return skipped;
+    }
+}
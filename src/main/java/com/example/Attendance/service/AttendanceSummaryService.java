@@ -1,21 +1,29 @@
 package com.example.Attendance.service;
 
 import com.example.Attendance.dto.MonthlyAttendanceSummaryDTO;
-import com.example.Attendance.model.DailyAttendance;
 import com.example.Attendance.model.Employee;
 import com.example.Attendance.model.LeaveModel;
 import com.example.Attendance.repository.DailyAttendanceRepository;
 import com.example.Attendance.repository.EmployeeRepository;
 import com.example.Attendance.repository.LeaveRepository;
 import com.example.Attendance.util.EpochUtil;
+import com.example.Attendance.util.MonthlySummaryCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class AttendanceSummaryService {
@@ -25,30 +33,204 @@ public class AttendanceSummaryService {
     @Autowired
     private DailyAttendanceRepository dailyAttendanceRepository;
     @Autowired
-    private EmployeeRepository employeeRepository;
+    private EmployeeService employeeService;
     @Autowired
     private LeaveRepository leaveRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private MonthlySummarySnapshotService summarySnapshots;
+
+    // Employees computed (and held in memory) at a time when streaming a report
+    @Value("${attendance.summary.stream-window:200}")
+    private int streamWindow;
 
     public MonthlyAttendanceSummaryDTO getMonthlySummary(String employeeId, int year, int month) {
         // 0. Check if employee exists
-        Optional<Employee> empOpt = employeeRepository.findByEmployeeId(employeeId);
+        Optional<Employee> empOpt = employeeService.getEmployeeByEmpId(employeeId);
         if (empOpt.isEmpty()) {
             throw new com.example.Attendance.exception.CustomException("Employee not found", HttpStatus.NOT_FOUND);
         }
 
         Employee employee = empOpt.get();
         LocalDate start = LocalDate.of(year, month, 1);
-        LocalDate today = LocalDate.now();
-        LocalDate end = LocalDate.of(year, month, start.lengthOfMonth());
+        LocalDate end = monthEnd(start);
+
+        // 1. Served from the snapshot (ended months) or the running-month cache when present
+        MonthlySummarySnapshotService.Lookup materialized = findMaterialized(List.of(employeeId), start, end);
+        if (materialized.summaries().containsKey(employeeId)) {
+            return materialized.summaries().get(employeeId);
+        }
+
+        // 2. Days with logs
+        long startEpoch = EpochUtil.toEpochSeconds(start, ZONE_ID);
+        long endEpoch = EpochUtil.toEpochSeconds(end.plusDays(1), ZONE_ID) - 1;
+        List<Long> attendedDays = dailyAttendanceRepository
+                .findAttendedDayEpochs(List.of(employeeId), startEpoch, endEpoch)
+                .getOrDefault(employeeId, List.of());
+
+        // 3. Approved leaves
+        List<LeaveModel> leaves = leaveRepository.findByEmployeeIdAndStatusAndLeaveDatesBetween(employeeId, "Approved", start, end);
+
+        MonthlyAttendanceSummaryDTO summary = buildSummary(employee, start, end, attendedDays, leaves);
+        materialize(Map.of(employeeId, summary), materialized, start, end);
+        return summary;
+    }
+
+    /**
+     * Month summaries for many employees with one daily_attendance aggregation and one leave query.
+     * Entries keep the order of the given employees and carry either "attendance" or "error".
+     */
+    public List<Map<String, Object>> getMonthlySummaries(List<Employee> employees, int year, int month) {
+        if (employees.isEmpty()) {
+            return List.of();
+        }
+        LocalDate start = LocalDate.of(year, month, 1);
+        LocalDate end = monthEnd(start);
+        List<String> employeeIds = employees.stream().map(Employee::getEmployeeId).toList();
+
+        // 1. Snapshots and cached running-month summaries; only the rest is computed
+        MonthlySummarySnapshotService.Lookup lookup = findMaterialized(employeeIds, start, end);
+        Map<String, MonthlyAttendanceSummaryDTO> materialized = lookup.summaries();
+        List<String> pendingIds = employeeIds.stream().filter(id -> !materialized.containsKey(id)).toList();
+
+        Map<String, List<Long>> attendedDays = Map.of();
+        Map<String, List<LeaveModel>> leaves = Map.of();
+        if (!pendingIds.isEmpty()) {
+            // 2. Days with logs, grouped by employee
+            long startEpoch = EpochUtil.toEpochSeconds(start, ZONE_ID);
+            long endEpoch = EpochUtil.toEpochSeconds(end.plusDays(1), ZONE_ID) - 1;
+            attendedDays = dailyAttendanceRepository.findAttendedDayEpochs(pendingIds, startEpoch, endEpoch);
+
+            // 3. Approved leaves, grouped by employee
+            leaves = leaveRepository
+                    .findByEmployeeIdInAndStatusAndLeaveDatesBetween(pendingIds, "Approved", start, end)
+                    .stream()
+                    .collect(Collectors.groupingBy(LeaveModel::getEmployeeId));
+        }
+
+        // 4. Everything else is computed in memory, spread over the available cores
+        Map<String, List<Long>> daysByEmployee = attendedDays;
+        Map<String, List<LeaveModel>> leavesByEmployee = leaves;
+        Map<String, MonthlyAttendanceSummaryDTO> computed = new ConcurrentHashMap<>();
+        List<Map<String, Object>> entries = employees.parallelStream().map(emp -> {
+            try {
+                MonthlyAttendanceSummaryDTO summary = materialized.get(emp.getEmployeeId());
+                if (summary == null) {
+                    summary = buildSummary(emp, start, end,
+                            daysByEmployee.getOrDefault(emp.getEmployeeId(), List.of()),
+                            leavesByEmployee.getOrDefault(emp.getEmployeeId(), List.of()));
+                    computed.put(emp.getEmployeeId(), summary);
+                }
+                return Map.<String, Object>of("employeeId", emp.getEmployeeId(), "attendance", summary);
+            } catch (Exception e) {
+                Map<String, Object> errorMap = new HashMap<>();
+                errorMap.put("employeeId", emp.getEmployeeId());
+                errorMap.put("error", e.getMessage());
+                return errorMap;
+            }
+        }).collect(Collectors.toList());
+
+        materialize(computed, lookup, start, end);
+        return entries;
+    }
+
+    // Team summaries in assignTo order; members missing from the directory get an "Employee not found" entry
+    public List<Map<String, Object>> getTeamMonthlySummaries(List<String> teamIds, int year, int month) {
+        List<Employee> members = employeeService.getEmployeesByEmpIds(teamIds);
+        Map<String, Map<String, Object>> summaries = getMonthlySummaries(members, year, month).stream()
+                .collect(Collectors.toMap(entry -> (String) entry.get("employeeId"), entry -> entry));
+        return teamIds.stream()
+                .map(empId -> summaries.getOrDefault(empId, Map.of("employeeId", empId, "error", "Employee not found")))
+                .collect(Collectors.toList());
+    }
+
+    // Writes one summary entry per line (NDJSON), computing streamWindow employees at a time
+    public void streamMonthlySummaries(Iterator<Employee> employees, int year, int month, boolean compact, OutputStream out) throws IOException {
+        List<Employee> window = new ArrayList<>(streamWindow);
+        while (employees.hasNext()) {
+            window.add(employees.next());
+            if (window.size() == streamWindow || !employees.hasNext()) {
+                writeLines(getMonthlySummaries(window, year, month), year, month, compact, out);
+                window.clear();
+            }
+        }
+    }
+
+    public void streamTeamMonthlySummaries(List<String> teamIds, int year, int month, boolean compact, OutputStream out) throws IOException {
+        for (int from = 0; from < teamIds.size(); from += streamWindow) {
+            List<String> window = teamIds.subList(from, Math.min(from + streamWindow, teamIds.size()));
+            writeLines(getTeamMonthlySummaries(window, year, month), year, month, compact, out);
+        }
+    }
+
+    private void writeLines(List<Map<String, Object>> entries, int year, int month, boolean compact, OutputStream out) throws IOException {
+        for (Map<String, Object> entry : entries) {
+            out.write(objectMapper.writeValueAsBytes(compact ? MonthlySummaryCodec.encodeEntry(entry, year, month) : entry));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    // Freezes last month's summary of every employee once it has ended
+    @Scheduled(cron = "0 30 0 1 * *", zone = "Asia/Kolkata") // Every 1st of the month at 00:30 IST
+    public void closePreviousMonth() {
+        YearMonth previous = YearMonth.now(ZONE_ID).minusMonths(1);
+        try (Stream<Employee> employees = employeeRepository.streamAllDirectoryEntries()) {
+            Iterator<Employee> iterator = employees.iterator();
+            List<Employee> window = new ArrayList<>(streamWindow);
+            while (iterator.hasNext()) {
+                window.add(iterator.next());
+                if (window.size() == streamWindow || !iterator.hasNext()) {
+                    getMonthlySummaries(window, previous.getYear(), previous.getMonthValue());
+                    window.clear();
+                }
+            }
+        }
+    }
+
+    // A month is closed once its last day has passed
+    private boolean isClosed(LocalDate start) {
+        return LocalDate.now(ZONE_ID).isAfter(start.withDayOfMonth(start.lengthOfMonth()));
+    }
+
+    private MonthlySummarySnapshotService.Lookup findMaterialized(List<String> employeeIds, LocalDate start, LocalDate end) {
+        return isClosed(start)
+                ? summarySnapshots.findClosed(employeeIds, start.getYear(), start.getMonthValue())
+                : summarySnapshots.findOpen(employeeIds, start.getYear(), start.getMonthValue(), end);
+    }
+
+    // Saves against the versions the lookup read, so a month invalidated meanwhile is not stored stale
+    private void materialize(Map<String, MonthlyAttendanceSummaryDTO> summaries, MonthlySummarySnapshotService.Lookup lookup,
+                             LocalDate start, LocalDate end) {
+        if (isClosed(start)) {
+            summarySnapshots.saveClosed(summaries, lookup.versions(), start.getYear(), start.getMonthValue());
+        } else {
+            summarySnapshots.saveOpen(summaries, lookup.versions(), start.getYear(), start.getMonthValue(), end);
+        }
+    }
+
+    // The month's last day, or today while the month is still running
+    private LocalDate monthEnd(LocalDate start) {
+        LocalDate today = LocalDate.now(ZONE_ID);
+        LocalDate end = LocalDate.of(start.getYear(), start.getMonthValue(), start.lengthOfMonth());
         if (today.isBefore(end)) {
             end = today;
         }
+        return end;
+    }
 
-        // 1. Get present dates
-        List<LocalDate> presentDates = getPresentDates(employeeId, start, end);
+    private MonthlyAttendanceSummaryDTO buildSummary(Employee employee, LocalDate start, LocalDate end,
+                                                     List<Long> attendedDays, List<LeaveModel> leaves) {
+        // 1. Present dates
+        List<LocalDate> presentDates = attendedDays.stream()
+                .map(epoch -> EpochUtil.fromEpochSecondsToDate(epoch, ZONE_ID))
+                .collect(Collectors.toList());
 
-        // 2. Get leave and comp-off dates
-        LeaveDatesSummary leaveSummary = getLeaveDates(employeeId, start, end, year, month);
+        // 2. Leave and comp-off dates
+        LeaveDatesSummary leaveSummary = getLeaveDates(leaves, start.getYear(), start.getMonthValue());
 
         // 3. Weekly offs
         List<String> weeklyOffs = employee.getWeeklyOffs();
@@ -83,22 +265,7 @@ public class AttendanceSummaryService {
         return dto;
     }
 
-    private List<LocalDate> getPresentDates(String employeeId, LocalDate start, LocalDate end) {
-        long startEpoch = EpochUtil.toEpochSeconds(start, ZONE_ID);
-        long endEpoch = EpochUtil.toEpochSeconds(end.plusDays(1), ZONE_ID) - 1;
-
-        List<DailyAttendance> records = dailyAttendanceRepository
-                .findByEmployeeIdAndDateEpochBetween(employeeId, startEpoch, endEpoch);
-
-        return records.stream()
-                .filter(d -> d.getLogs() != null && !d.getLogs().isEmpty())
-                .map(d -> EpochUtil.fromEpochSecondsToDate(d.getDateEpoch(), ZONE_ID))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-    }
-
-    private LeaveDatesSummary getLeaveDates(String employeeId, LocalDate start, LocalDate end, int year, int month) {
-        List<LeaveModel> leaves = leaveRepository.findByEmployeeIdAndStatusAndLeaveDatesBetween(employeeId, "Approved", start, end);
+    private LeaveDatesSummary getLeaveDates(List<LeaveModel> leaves, int year, int month) {
         LeaveDatesSummary summary = new LeaveDatesSummary();
         for (LeaveModel leave : leaves) {
             for (LocalDate date : leave.getLeaveDates()) {
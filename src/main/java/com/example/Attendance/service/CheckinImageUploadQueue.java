@@ -0,0 +1,323 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.repository.DailyAttendanceRepository;
+import com.example.Attendance.util.MinIOService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind upload of check-in images. The check-in is recorded with a pending image reference,
+ * the image is queued here and the log's checkinImgUrl is patched once MinIO accepted it.
+ * Jobs that do not fit in memory (or are still queued at shutdown) are spilled to disk and fed back later.
+ */
+@Service
+public class CheckinImageUploadQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckinImageUploadQueue.class);
+
+    public static final String PENDING_PREFIX = "pending:";
+
+    private final MinIOService minIOService;
+    private final DailyAttendanceRepository dailyRepo;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${attendance.checkin-upload.mode:sync}")
+    private String mode;
+    @Value("${attendance.checkin-upload.queue-capacity:200}")
+    private int queueCapacity;
+    @Value("${attendance.checkin-upload.workers:4}")
+    private int workers;
+    @Value("${attendance.checkin-upload.max-attempts:8}")
+    private int maxAttempts;
+    @Value("${attendance.checkin-upload.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+    @Value("${attendance.checkin-upload.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+    // Must survive restarts (a mounted volume in containers): spilled jobs are the only copy of their image
+    @Value("${attendance.checkin-upload.spill-dir:/var/lib/attendance/checkin-uploads}")
+    private String spillDirectory;
+
+    private Path spillDir;
+
+    private BlockingQueue<UploadJob> queue;
+    private final AtomicInteger spilled = new AtomicInteger();
+    private final AtomicInteger retrying = new AtomicInteger();
+    // Jobs waiting out their backoff, spilled on shutdown so they are not lost with the scheduler
+    private final Set<UploadJob> delayed = ConcurrentHashMap.newKeySet();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    private Timer uploadLatency;
+    private Counter uploadFailures;
+    private Counter uploadsAbandoned;
+
+    public CheckinImageUploadQueue(MinIOService minIOService, DailyAttendanceRepository dailyRepo, MeterRegistry meterRegistry) {
+        this.minIOService = minIOService;
+        this.dailyRepo = dailyRepo;
+        this.meterRegistry = meterRegistry;
+    }
+
+    private record UploadJob(String pendingRef, String employeeId, long dateEpoch, String filename,
+                             String contentType, byte[] bytes, int attempt) {
+
+        UploadJob nextAttempt() {
+            return new UploadJob(pendingRef, employeeId, dateEpoch, filename, contentType, bytes, attempt + 1);
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!isEnabled()) return;
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        spillDir = Path.of(spillDirectory);
+        Files.createDirectories(spillDir.resolve("failed"));
+        try (Stream<Path> files = Files.list(spillDir)) {
+            spilled.set((int) files.filter(p -> p.toString().endsWith(".img")).count());
+        }
+
+        Gauge.builder("checkin.upload.queue.depth", this, q -> q.queue.size()).register(meterRegistry);
+        Gauge.builder("checkin.upload.queue.spilled", spilled, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("checkin.upload.queue.retrying", retrying, AtomicInteger::get).register(meterRegistry);
+        uploadLatency = Timer.builder("checkin.upload.latency").register(meterRegistry);
+        uploadFailures = Counter.builder("checkin.upload.failures").register(meterRegistry);
+        uploadsAbandoned = Counter.builder("checkin.upload.abandoned").register(meterRegistry);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerThreads.add(Thread.ofVirtual().name("checkin-upload-" + i).start(this::work));
+        }
+        scheduler.scheduleWithFixedDelay(this::refillFromDisk, 0, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!isEnabled()) return;
+        running = false;
+        scheduler.shutdownNow();
+        workerThreads.forEach(Thread::interrupt);
+
+        // Keep whatever is still queued or waiting to be retried for the next start
+        List<UploadJob> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.addAll(delayed);
+        delayed.clear();
+        retrying.set(0);
+        remaining.forEach(this::spill);
+    }
+
+    public boolean isEnabled() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    public String newPendingReference() {
+        return PENDING_PREFIX + UUID.randomUUID();
+    }
+
+    public boolean isPending(String checkinImgUrl) {
+        return checkinImgUrl != null && checkinImgUrl.startsWith(PENDING_PREFIX);
+    }
+
+    public void enqueue(String pendingRef, String employeeId, long dateEpoch, String filename, String contentType, byte[] bytes) {
+        offer(new UploadJob(pendingRef, employeeId, dateEpoch, filename, contentType, bytes, 1));
+    }
+
+    private void offer(UploadJob job) {
+        if (!running || !queue.offer(job)) {
+            spill(job);
+        }
+    }
+
+    private void work() {
+        while (running) {
+            UploadJob job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            upload(job);
+        }
+    }
+
+    private void upload(UploadJob job) {
+        long startedAt = System.nanoTime();
+        try {
+            String url = minIOService.getCheckinImgUrl(job.employeeId(), job.filename(), job.contentType(), job.bytes());
+            uploadLatency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            if (!dailyRepo.replaceCheckinImgUrl(job.employeeId(), job.dateEpoch(), job.pendingRef(), url)) {
+                log.warn("Check-in log {} of {} no longer exists; uploaded image {} is unreferenced",
+                        job.pendingRef(), job.employeeId(), url);
+            }
+        } catch (Exception e) {
+            uploadFailures.increment();
+            retryLater(job, e);
+        }
+    }
+
+    private void retryLater(UploadJob job, Exception cause) {
+        if (job.attempt() >= maxAttempts) {
+            uploadsAbandoned.increment();
+            log.error("Giving up on check-in image {} of {} after {} attempts: {}",
+                    job.pendingRef(), job.employeeId(), job.attempt(), cause.getMessage());
+            writeToDisk(job, spillDir.resolve("failed"));
+            return;
+        }
+
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(job.attempt() - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+        log.warn("Upload of check-in image {} failed (attempt {}), retrying in {} ms: {}",
+                job.pendingRef(), job.attempt(), jittered, cause.getMessage());
+
+        UploadJob next = job.nextAttempt();
+        if (!running) {
+            spill(next);
+            return;
+        }
+        retrying.incrementAndGet();
+        delayed.add(next);
+        try {
+            scheduler.schedule(() -> {
+                // Whoever removes it from delayed owns it: this task or stop()
+                if (delayed.remove(next)) {
+                    retrying.decrementAndGet();
+                    offer(next);
+                }
+            }, jittered, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            if (delayed.remove(next)) {
+                retrying.decrementAndGet();
+                spill(next);
+            }
+        }
+    }
+
+    // Moves spilled jobs back into memory while there is room, oldest first
+    private void refillFromDisk() {
+        if (spilled.get() == 0 || queue.remainingCapacity() == 0) return;
+        try (Stream<Path> files = Files.list(spillDir)) {
+            List<Path> images = files.filter(p -> p.toString().endsWith(".img"))
+                    .sorted(Comparator.comparingLong(this::lastModified))
+                    .limit(queue.remainingCapacity())
+                    .toList();
+            for (Path image : images) {
+                UploadJob job;
+                try {
+                    job = readFromDisk(image);
+                } catch (IOException | RuntimeException e) {
+                    // One unreadable job must not hold up the ones behind it
+                    uploadsAbandoned.increment();
+                    log.error("Could not read spilled check-in image {}, moving it to failed: {}", image.getFileName(), e.getMessage());
+                    moveToFailed(image);
+                    spilled.decrementAndGet();
+                    continue;
+                }
+                if (!queue.offer(job)) return;
+                Files.deleteIfExists(image);
+                Files.deleteIfExists(metadataPath(image));
+                spilled.decrementAndGet();
+            }
+        } catch (Exception e) {
+            log.warn("Could not reload spilled check-in images: {}", e.getMessage());
+        }
+    }
+
+    // Kept for inspection next to the jobs that ran out of attempts; deleted if even that fails, so it is not read again
+    private void moveToFailed(Path image) {
+        Path failed = spillDir.resolve("failed");
+        for (Path file : List.of(image, metadataPath(image))) {
+            try {
+                if (Files.exists(file)) {
+                    Files.move(file, failed.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                log.error("Could not move {} to failed, deleting it: {}", file.getFileName(), e.getMessage());
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // Nothing left to try
+                }
+            }
+        }
+    }
+
+    private void spill(UploadJob job) {
+        if (writeToDisk(job, spillDir)) {
+            spilled.incrementAndGet();
+        }
+    }
+
+    private boolean writeToDisk(UploadJob job, Path dir) {
+        String name = job.pendingRef().substring(PENDING_PREFIX.length());
+        Path image = dir.resolve(name + ".img");
+        Properties metadata = new Properties();
+        metadata.setProperty("pendingRef", job.pendingRef());
+        metadata.setProperty("employeeId", job.employeeId());
+        metadata.setProperty("dateEpoch", String.valueOf(job.dateEpoch()));
+        metadata.setProperty("filename", Objects.toString(job.filename(), "checkin.jpg"));
+        metadata.setProperty("contentType", Objects.toString(job.contentType(), ""));
+        metadata.setProperty("attempt", String.valueOf(job.attempt()));
+        try {
+            try (Writer writer = Files.newBufferedWriter(metadataPath(image))) {
+                metadata.store(writer, null);
+            }
+            // The image is written last; refillFromDisk only picks up complete jobs
+            Path tmp = dir.resolve(name + ".tmp");
+            Files.write(tmp, job.bytes());
+            Files.move(tmp, image, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            uploadsAbandoned.increment();
+            log.error("Could not spill check-in image {} of {} to disk: {}", job.pendingRef(), job.employeeId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private UploadJob readFromDisk(Path image) throws IOException {
+        Properties metadata = new Properties();
+        try (Reader reader = Files.newBufferedReader(metadataPath(image))) {
+            metadata.load(reader);
+        }
+        String contentType = metadata.getProperty("contentType");
+        return new UploadJob(
+                metadata.getProperty("pendingRef"),
+                metadata.getProperty("employeeId"),
+                Long.parseLong(metadata.getProperty("dateEpoch")),
+                metadata.getProperty("filename"),
+                contentType.isEmpty() ? null : contentType,
+                Files.readAllBytes(image),
+                Integer.parseInt(metadata.getProperty("attempt")));
+    }
+
+    private Path metadataPath(Path image) {
+        String fileName = image.getFileName().toString();
+        return image.resolveSibling(fileName.substring(0, fileName.lastIndexOf('.')) + ".properties");
+    }
+
+    private long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -2,27 +2,81 @@ package com.example.Attendance.service;
 
 import com.example.Attendance.model.Employee;
 import com.example.Attendance.repository.EmployeeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.*;
 
 @Service
 public class EmployeeService {
 
     @Autowired
     private EmployeeRepository employeeRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${attendance.employee-cache.max-size:20000}")
+    private long cacheMaxSize;
+    @Value("${attendance.employee-cache.ttl:PT10M}")
+    private Duration cacheTtl;
+
+    // empId -> directory entry; unknown empIds are not cached, so a newly created employee is found right away
+    private Cache<String, Employee> employeeCache;
+
+    @PostConstruct
+    public void initCache() {
+        employeeCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, employeeCache, "employees");
+    }
 
     public boolean employeeExists(String empId) {
-        return employeeRepository.findByEmployeeId(empId).isPresent();
+        return getEmployeeByEmpId(empId).isPresent();
     }
 
     public Optional<Employee> getEmployeeByEmpId(String empId) {
-        return employeeRepository.findByEmployeeId(empId);
+        if (empId == null || empId.isBlank()) {
+            return Optional.empty();
+        }
+        // A null from the loader is not stored
+        return Optional.ofNullable(employeeCache.get(empId,
+                id -> employeeRepository.findDirectoryEntryByEmployeeId(id).orElse(null)));
     }
 
+    // Fetches only the empIds that are not cached, in one query; null or blank empIds are skipped
     public List<Employee> getEmployeesByEmpIds(List<String> empIds) {
-        return employeeRepository.findByEmployeeIdIn(empIds);
+        Set<String> ids = new LinkedHashSet<>();
+        empIds.stream().filter(empId -> empId != null && !empId.isBlank()).forEach(ids::add);
+        Map<String, Employee> entries = employeeCache.getAll(ids, missing -> {
+            Map<String, Employee> loaded = new HashMap<>();
+            employeeRepository.findDirectoryEntriesByEmployeeIdIn(new ArrayList<>(missing))
+                    .forEach(employee -> loaded.put(employee.getEmployeeId(), employee));
+            return loaded;
+        });
+
+        List<Employee> employees = new ArrayList<>();
+        for (String empId : ids) {
+            Employee employee = entries.get(empId);
+            if (employee != null) employees.add(employee);
+        }
+        return employees;
+    }
+
+    public void evictEmployee(String empId) {
+        employeeCache.invalidate(empId);
+    }
+
+    public void evictAllEmployees() {
+        employeeCache.invalidateAll();
     }
 }
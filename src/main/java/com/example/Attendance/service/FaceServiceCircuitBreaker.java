@@ -0,0 +1,157 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.exception.FaceServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Circuit breaker in front of the face recognition service. Over the last window-size calls, once
+ * failure-rate-threshold percent failed (errors, timeouts, 5xx or calls slower than slow-call-threshold)
+ * the circuit opens and calls fail at once for open-duration. Then half-open-calls trial calls are let
+ * through: all succeeding closes it, any failure opens it again. State is the face.circuit.state gauge.
+ */
+@Service
+public class FaceServiceCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(FaceServiceCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${attendance.face.circuit.window-size:20}")
+    private int windowSize;
+    @Value("${attendance.face.circuit.minimum-calls:10}")
+    private int minimumCalls;
+    @Value("${attendance.face.circuit.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+    @Value("${attendance.face.circuit.slow-call-threshold:PT8S}")
+    private Duration slowCallThreshold;
+    @Value("${attendance.face.circuit.open-duration:PT30S}")
+    private Duration openDuration;
+    @Value("${attendance.face.circuit.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private boolean[] outcomes; // ring buffer, true = failed
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openUntil;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    private Counter rejected;
+
+    public FaceServiceCircuitBreaker(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        outcomes = new boolean[windowSize];
+        Gauge.builder("face.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        rejected = Counter.builder("face.circuit.rejected").register(meterRegistry);
+    }
+
+    // Call before each request; every permitted call must be followed by onSuccess or onFailure
+    public synchronized void acquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+            log.info("Face service circuit half-open, sending {} trial calls", halfOpenCalls);
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && halfOpenPermits == 0)) {
+            rejected.increment();
+            throw new FaceServiceUnavailableException("Face recognition is temporarily unavailable", null);
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits--;
+        }
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        if (durationNanos > slowCallThreshold.toNanos()) {
+            onFailure();
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    // Fails like acquirePermission when no call would be let through, without taking a permit
+    public synchronized void checkPermitted() {
+        if (!isCallPermitted()) {
+            rejected.increment();
+            throw new FaceServiceUnavailableException("Face recognition is temporarily unavailable", null);
+        }
+    }
+
+    // Whether a call would be let through now, without taking a permit
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> halfOpenPermits > 0;
+            case OPEN -> System.nanoTime() - openUntil >= 0;
+        };
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == windowSize) {
+            if (outcomes[next]) failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failed;
+        if (failed) failures++;
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.nanoTime() + openDuration.toNanos();
+        log.warn("Face service circuit opened for {}", openDuration);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        Arrays.fill(outcomes, false);
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        log.info("Face service circuit closed");
+    }
+}
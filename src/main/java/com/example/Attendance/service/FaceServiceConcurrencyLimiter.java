@@ -0,0 +1,139 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Adaptive (AIMD) limit on concurrent calls to the face recognition service. Every call that comes back
+ * in time while the limit is in use raises it by 1/limit; a call that fails or takes longer than
+ * latency-threshold cuts it by backoff-ratio. Callers beyond the limit wait in a short queue for up to
+ * max-wait; when the queue is full or the wait runs out they get a 429 with Retry-After.
+ * Metrics: face.concurrency.limit, .inflight, .queued and .rejected.
+ */
+@Service
+public class FaceServiceConcurrencyLimiter {
+
+    public enum Outcome {
+        SUCCESS, // answered in time
+        DROPPED, // failed or too slow: the service is over capacity
+        IGNORED  // says nothing about capacity, e.g. rejected by the circuit breaker
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${attendance.face.limit.initial:10}")
+    private int initialLimit;
+    @Value("${attendance.face.limit.min:1}")
+    private int minLimit;
+    @Value("${attendance.face.limit.max:64}")
+    private int maxLimit;
+    @Value("${attendance.face.limit.backoff-ratio:0.9}")
+    private double backoffRatio;
+    @Value("${attendance.face.limit.latency-threshold:PT3S}")
+    private Duration latencyThreshold;
+    @Value("${attendance.face.limit.max-queue:20}")
+    private int maxQueue;
+    @Value("${attendance.face.limit.max-wait:PT2S}")
+    private Duration maxWait;
+    @Value("${attendance.face.limit.retry-after:PT2S}")
+    private Duration retryAfter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    // Guarded by lock
+    private double limit;
+    private int inFlight;
+    private int queued;
+
+    private Counter rejected;
+
+    public FaceServiceConcurrencyLimiter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        limit = initialLimit;
+        Gauge.builder("face.concurrency.limit", this, limiter -> limiter.read(() -> limiter.limit)).register(meterRegistry);
+        Gauge.builder("face.concurrency.inflight", this, limiter -> limiter.read(() -> limiter.inFlight)).register(meterRegistry);
+        Gauge.builder("face.concurrency.queued", this, limiter -> limiter.read(() -> limiter.queued)).register(meterRegistry);
+        rejected = Counter.builder("face.concurrency.rejected").register(meterRegistry);
+    }
+
+    // Takes a slot, waiting briefly for one; every acquire must be followed by one release
+    public void acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return;
+            }
+            if (queued >= maxQueue) {
+                throw reject();
+            }
+
+            queued++;
+            try {
+                long remaining = maxWait.toNanos();
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        throw reject();
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject();
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(Outcome outcome, long latencyNanos) {
+        lock.lock();
+        try {
+            // Only a limit that is actually in use may grow, or it creeps up while traffic is light
+            boolean limitInUse = inFlight * 2 >= limit;
+            inFlight--;
+
+            if (outcome == Outcome.DROPPED || (outcome == Outcome.SUCCESS && latencyNanos > latencyThreshold.toNanos())) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (outcome == Outcome.SUCCESS && limitInUse) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TooManyRequestsException reject() {
+        rejected.increment();
+        long seconds = Math.max(1, retryAfter.toSeconds());
+        return new TooManyRequestsException("Face recognition is at capacity, please retry shortly", seconds);
+    }
+
+    private double read(DoubleSupplier value) {
+        lock.lock();
+        try {
+            return value.getAsDouble();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
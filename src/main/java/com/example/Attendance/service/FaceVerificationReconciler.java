@@ -0,0 +1,159 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.exception.FaceServiceUnavailableException;
+import com.example.Attendance.exception.TooManyRequestsException;
+import com.example.Attendance.model.CheckInOut;
+import com.example.Attendance.model.PendingVerification;
+import com.example.Attendance.repository.DailyAttendanceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies check-ins that were accepted as "pending" while the face service was unavailable. Once the
+ * circuit lets calls through again, each pending photo is checked against the employee it was recorded
+ * for; the log becomes "verified", or "mismatch" (logged and counted) when the face is not theirs.
+ * Pending entries live in pending_verifications; their count is the face.pending.verifications gauge.
+ */
+@Service
+public class FaceVerificationReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(FaceVerificationReconciler.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final DailyAttendanceRepository dailyRepo;
+    private final FaceVerificationService faceVerificationService;
+    private final FaceServiceCircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${attendance.face.reconcile.batch-size:50}")
+    private int batchSize;
+    @Value("${attendance.face.reconcile.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${attendance.face.reconcile.retry-backoff:PT1M}")
+    private Duration retryBackoff;
+
+    private final AtomicLong pending = new AtomicLong();
+    private Counter verified;
+    private Counter mismatches;
+    private Counter unverifiable;
+
+    public FaceVerificationReconciler(MongoTemplate mongoTemplate, DailyAttendanceRepository dailyRepo,
+                                      FaceVerificationService faceVerificationService,
+                                      FaceServiceCircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.dailyRepo = dailyRepo;
+        this.faceVerificationService = faceVerificationService;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        pending.set(mongoTemplate.count(new Query(), PendingVerification.class));
+        Gauge.builder("face.pending.verifications", pending, AtomicLong::get).register(meterRegistry);
+        verified = Counter.builder("face.reconcile").tag("outcome", "verified").register(meterRegistry);
+        mismatches = Counter.builder("face.reconcile").tag("outcome", "mismatch").register(meterRegistry);
+        unverifiable = Counter.builder("face.reconcile").tag("outcome", "unverifiable").register(meterRegistry);
+    }
+
+    // Called before the check-in log is appended, so the first attempt waits one backoff for the log to exist;
+    // returns the id to cancel the entry with if the log is not recorded after all
+    public String enqueue(String employeeId, long dateEpoch, long timestampEpoch, String filename, String contentType, byte[] image) {
+        Instant now = Instant.now();
+        PendingVerification entry = mongoTemplate.insert(new PendingVerification(null, employeeId, dateEpoch, timestampEpoch,
+                filename, contentType, image, 0, now, now.plus(retryBackoff)));
+        pending.incrementAndGet();
+        return entry.getId();
+    }
+
+    public void cancel(String id) {
+        try {
+            if (mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), PendingVerification.class).getDeletedCount() > 0) {
+                pending.decrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            // Left behind it resolves against a missing log, which is only logged
+            log.warn("Could not cancel pending verification {}: {}", id, e.getMessage());
+        }
+    }
+
+    public long pendingCount() {
+        return pending.get();
+    }
+
+    // One batch of due entries per run; entries that failed wait out their backoff before they are due again
+    @Scheduled(fixedDelayString = "${attendance.face.reconcile.interval-ms:30000}")
+    public void reconcile() {
+        if (!circuitBreaker.isCallPermitted()) return;
+        Query due = Query.query(Criteria.where("nextAttemptAt").lte(Instant.now()))
+                .with(Sort.by("nextAttemptAt"))
+                .limit(batchSize);
+        for (PendingVerification entry : mongoTemplate.find(due, PendingVerification.class)) {
+            if (!verify(entry)) return; // service unavailable again; the rest waits for the next run
+        }
+    }
+
+    // False if the face service could not be reached or had no capacity to spare
+    private boolean verify(PendingVerification entry) {
+        Map<String, Object> result;
+        try {
+            result = faceVerificationService.verifyByEmpId(entry.getImage(), entry.getFilename(), entry.getContentType(),
+                    entry.getEmployeeId());
+        } catch (FaceServiceUnavailableException | TooManyRequestsException e) {
+            return false;
+        } catch (RuntimeException e) {
+            // The service answered but could not process this photo
+            if (entry.getAttempts() + 1 >= maxAttempts) {
+                log.warn("Giving up verifying check-in of {} at {}: {}", entry.getEmployeeId(), entry.getTimestampEpoch(), e.getMessage());
+                unverifiable.increment();
+                resolve(entry, CheckInOut.VERIFICATION_FAILED);
+            } else {
+                // 1x, 2x, 4x ... the backoff
+                Duration delay = retryBackoff.multipliedBy(1L << Math.min(entry.getAttempts(), 16));
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(entry.getId())),
+                        new Update().inc("attempts", 1).set("nextAttemptAt", Instant.now().plus(delay)),
+                        PendingVerification.class);
+            }
+            return true;
+        }
+
+        boolean match = result != null && "match".equalsIgnoreCase(String.valueOf(result.get("status")))
+                && entry.getEmployeeId().equals(result.get("empId"));
+        if (match) {
+            verified.increment();
+            resolve(entry, CheckInOut.VERIFICATION_VERIFIED);
+        } else {
+            mismatches.increment();
+            log.warn("Pending check-in of {} at {} does not match their face (result: {})",
+                    entry.getEmployeeId(), entry.getTimestampEpoch(), result);
+            resolve(entry, CheckInOut.VERIFICATION_MISMATCH);
+        }
+        return true;
+    }
+
+    private void resolve(PendingVerification entry, String verification) {
+        if (!dailyRepo.setCheckinVerification(entry.getEmployeeId(), entry.getDateEpoch(), entry.getTimestampEpoch(), verification)) {
+            log.warn("Pending check-in log of {} at {} no longer exists", entry.getEmployeeId(), entry.getTimestampEpoch());
+        }
+        if (mongoTemplate.remove(Query.query(Criteria.where("_id").is(entry.getId())), PendingVerification.class).getDeletedCount() > 0) {
+            pending.decrementAndGet();
+        }
+    }
+}
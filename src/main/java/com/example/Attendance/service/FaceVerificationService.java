@@ -1,14 +1,18 @@
 package com.example.Attendance.service;
 
-import io.minio.*;
-import io.minio.errors.MinioException;
-import jakarta.annotation.PostConstruct;
+import com.example.Attendance.exception.FaceServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,133 +31,142 @@ public class FaceVerificationService {
     @Value("${PYTHON_FACE_RECOGNITION}")
     private String PYTHON_FACE_RECOGNITION;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Images up to this size are forwarded from memory; larger ones go through a temp file
+    @Value("${attendance.face.in-memory-threshold:10MB}")
+    private DataSize inMemoryThreshold;
 
-    private File convertMultipartFileToFile(MultipartFile file) throws IOException {
-        File tempFile = File.createTempFile("uploaded_", ".jpg");
-        file.transferTo(tempFile);
-        return tempFile;
+    private final RestTemplate restTemplate;
+    private final FaceServiceCircuitBreaker circuitBreaker;
+    private final FaceServiceConcurrencyLimiter concurrencyLimiter;
+
+    public FaceVerificationService(@Qualifier("faceRestTemplate") RestTemplate restTemplate,
+                                   FaceServiceCircuitBreaker circuitBreaker,
+                                   FaceServiceConcurrencyLimiter concurrencyLimiter) {
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     public Map<String, Object> registerUser(MultipartFile file, String empId, String name, String imgUrl) throws IOException {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-        File tempFile = convertMultipartFileToFile(file);
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("empId", empId);
+        fields.put("name", name);
+        fields.put("imgUrl", imgUrl);
+        return postImage("register", forward(file), fields);
+    }
 
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("file", new FileSystemResource(tempFile));
-        body.add("empId", empId);
-        body.add("name", name);
-        body.add("imgUrl", imgUrl);
+    public Map<String, Object> verifyByEmpId(MultipartFile file, String empId) throws IOException {
+        return postImage("verify/by-empid", forward(file), Map.of("empId", empId)); // ✅ Include empId as plain text in form-data
+    }
 
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+    // Same as above for an image kept in memory, e.g. a check-in verified after the fact
+    public Map<String, Object> verifyByEmpId(byte[] image, String filename, String contentType, String empId) {
+        return postImage("verify/by-empid", inMemory(image, filename, contentType), Map.of("empId", empId));
+    }
 
-        try {
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    PYTHON_FACE_RECOGNITION + "register",
-                    HttpMethod.POST,
-                    requestEntity,
-                    Map.class
-            );
+    public Map<String, Object> verifyByEmpIdList(MultipartFile file, List<String> empIds) throws IOException {
+        String empIdListString = String.join(",", empIds); // comma-separated list
+        return postImage("verify/by-empid-list", forward(file), Map.of("empIds", empIdListString));
+    }
 
-            return response.getBody();
-        } catch (Exception e) {
-            throw new RuntimeException("Error communicating with face recognition service: " + e.getMessage(), e);
-        } finally {
-            if (tempFile.exists()) {
-                tempFile.delete();
-            }
-        }
+    public Map<String, Object> verifyAll(MultipartFile file) throws IOException {
+        return postImage("verify/all", forward(file), Map.of());
     }
 
-    public Map<String, Object> verifyByEmpId(MultipartFile file, String empId) throws IOException {
+    private Map<String, Object> postImage(String endpoint, ForwardedFile forwarded, Map<String, String> fields) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
-        // Convert MultipartFile to a temporary file
-        File tempFile = convertMultipartFileToFile(file);
-
         MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("file", new FileSystemResource(tempFile));
-        body.add("empId", empId); // ✅ Include empId as plain text in form-data
+        body.add("file", forwarded.part());
+        fields.forEach(body::add);
 
         HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
 
+        long startedAt = 0;
+        FaceServiceConcurrencyLimiter.Outcome outcome = FaceServiceConcurrencyLimiter.Outcome.IGNORED;
         try {
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    PYTHON_FACE_RECOGNITION + "verify/by-empid", // ✅ Updated endpoint
-                    HttpMethod.POST,
-                    requestEntity,
-                    Map.class
-            );
-
-            return response.getBody();
-        } catch (Exception e) {
-            throw new RuntimeException("Error communicating with face recognition service: " + e.getMessage(), e);
-        } finally {
-            // Cleanup the temp file
-            if (tempFile.exists()) {
-                tempFile.delete();
-            }
+            // Fails fast while the service is known to be down, before waiting for a slot
+            circuitBreaker.checkPermitted();
+            // At most the adaptive limit of calls in flight; 429 when its queue is full
+            concurrencyLimiter.acquire();
+        } catch (RuntimeException e) {
+            forwarded.cleanup();
+            throw e;
         }
-    }
-
-    public Map<String, Object> verifyByEmpIdList(MultipartFile file, List<String> empIds) throws IOException {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-        File tempFile = convertMultipartFileToFile(file);
-        String empIdListString = String.join(",", empIds); // comma-separated list
-
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("file", new FileSystemResource(tempFile));
-        body.add("empIds", empIdListString);
-
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
 
         try {
+            circuitBreaker.acquirePermission();
+            startedAt = System.nanoTime();
             ResponseEntity<Map> response = restTemplate.exchange(
-                    PYTHON_FACE_RECOGNITION + "verify/by-empid-list",
+                    PYTHON_FACE_RECOGNITION + endpoint,
                     HttpMethod.POST,
                     requestEntity,
                     Map.class
             );
 
+            circuitBreaker.onSuccess(System.nanoTime() - startedAt);
+            outcome = FaceServiceConcurrencyLimiter.Outcome.SUCCESS;
             return response.getBody();
+        } catch (FaceServiceUnavailableException e) {
+            throw e;
+        } catch (ResourceAccessException | HttpServerErrorException e) {
+            // Connection errors, timeouts and 5xx count against the service; 4xx are answers
+            circuitBreaker.onFailure();
+            outcome = FaceServiceConcurrencyLimiter.Outcome.DROPPED;
+            throw new FaceServiceUnavailableException("Face recognition service unavailable: " + e.getMessage(), e);
         } catch (Exception e) {
+            if (startedAt != 0) {
+                circuitBreaker.onSuccess(System.nanoTime() - startedAt);
+                outcome = FaceServiceConcurrencyLimiter.Outcome.SUCCESS;
+            }
             throw new RuntimeException("Error communicating with face recognition service: " + e.getMessage(), e);
         } finally {
-            if (tempFile.exists()) {
-                tempFile.delete();
-            }
+            concurrencyLimiter.release(outcome, startedAt != 0 ? System.nanoTime() - startedAt : 0);
+            forwarded.cleanup();
         }
     }
 
-    public Map<String, Object> verifyAll(MultipartFile file) throws IOException {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-        File tempFile = convertMultipartFileToFile(file);
+    // The file part with the original filename and content type, backed by memory or a temp file
+    private ForwardedFile forward(MultipartFile file) throws IOException {
+        String filename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "upload.jpg";
+        HttpHeaders partHeaders = new HttpHeaders();
+        partHeaders.setContentType(file.getContentType() != null
+                ? MediaType.parseMediaType(file.getContentType())
+                : MediaType.IMAGE_JPEG);
 
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("file", new FileSystemResource(tempFile));
+        if (file.getSize() <= inMemoryThreshold.toBytes()) {
+            return inMemory(file.getBytes(), filename, file.getContentType());
+        }
 
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+        File tempFile = File.createTempFile("uploaded_", ".jpg");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Resource resource = new FileSystemResource(tempFile) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+        return new ForwardedFile(new HttpEntity<>(resource, partHeaders), tempFile);
+    }
 
-        try {
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    PYTHON_FACE_RECOGNITION + "verify/all",
-                    HttpMethod.POST,
-                    requestEntity,
-                    Map.class
-            );
+    private ForwardedFile inMemory(byte[] bytes, String filename, String contentType) {
+        HttpHeaders partHeaders = new HttpHeaders();
+        partHeaders.setContentType(contentType != null ? MediaType.parseMediaType(contentType) : MediaType.IMAGE_JPEG);
+        Resource resource = new ByteArrayResource(bytes) {
+            @Override
+            public String getFilename() {
+                return filename != null ? filename : "upload.jpg";
+            }
+        };
+        return new ForwardedFile(new HttpEntity<>(resource, partHeaders), null);
+    }
 
-            return response.getBody();
-        } catch (Exception e) {
-            throw new RuntimeException("Error communicating with face recognition service: " + e.getMessage(), e);
-        } finally {
-            if (tempFile.exists()) {
+    private record ForwardedFile(HttpEntity<Resource> part, File tempFile) {
+        void cleanup() {
+            if (tempFile != null && tempFile.exists()) {
                 tempFile.delete();
             }
         }
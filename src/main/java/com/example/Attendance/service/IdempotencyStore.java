@@ -0,0 +1,210 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.model.IdempotencyRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Responses of requests sent with an Idempotency-Key. The first request for a key owns it and runs;
+ * duplicates get its future, so they wait for a running original and replay a finished one. Kept in a
+ * bounded in-memory cache with a TTL and, with attendance.idempotency.persist, in idempotency_keys so
+ * other instances see keys claimed here. Server errors, retryable 4xx and oversized responses are not kept.
+ * Each key remembers the fingerprint of the request that claimed it, so callers can refuse reuse of a key
+ * for a different request.
+ */
+@Service
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final long REMOTE_POLL_MS = 200;
+    // Request Timeout, Conflict (e.g. a concurrent check-in), Too Early, Too Many Requests
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(408, 409, 425, 429);
+
+    public record StoredResponse(int status, String contentType, byte[] body) {}
+
+    // owner: this request runs and must complete or abandon the claim; otherwise result is the original's response.
+    // fingerprint is the owning request's, null if unknown (a record written before fingerprints were kept)
+    public record Claim(boolean owner, String fingerprint, CompletableFuture<StoredResponse> result) {}
+
+    private record Entry(String fingerprint, CompletableFuture<StoredResponse> result) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${attendance.idempotency.ttl:PT24H}")
+    private Duration ttl;
+    @Value("${attendance.idempotency.max-keys:10000}")
+    private long maxKeys;
+    @Value("${attendance.idempotency.max-body:256KB}")
+    private DataSize maxBody;
+    @Value("${attendance.idempotency.wait-timeout:PT60S}")
+    private Duration waitTimeout;
+    @Value("${attendance.idempotency.persist:false}")
+    private boolean persist;
+
+    private Cache<String, Entry> responses;
+
+    public IdempotencyStore(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void initCache() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotency");
+    }
+
+    public Claim claim(String key, String fingerprint) {
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        Entry entry = new Entry(fingerprint, mine);
+        Entry existing = responses.asMap().putIfAbsent(key, entry);
+        if (existing != null) {
+            return new Claim(false, existing.fingerprint(), existing.result());
+        }
+        if (!persist) {
+            return new Claim(true, fingerprint, mine);
+        }
+
+        // Not seen here; another instance may have claimed it
+        RemoteClaim remote;
+        try {
+            remote = claimRemote(key, fingerprint);
+        } catch (RuntimeException e) {
+            // Nobody owns the key now; duplicates waiting on it fail and the next one claims it afresh
+            responses.asMap().remove(key, entry);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        if (remote == null) {
+            return new Claim(true, fingerprint, mine);
+        }
+        if (remote.fingerprint() != null && !remote.fingerprint().equals(fingerprint)) {
+            // Our entry would tell local duplicates the wrong fingerprint; they retry and ask Mongo themselves
+            responses.asMap().remove(key, entry);
+            mine.completeExceptionally(new CancellationException("Claimed by a different request"));
+            return new Claim(false, remote.fingerprint(), mine);
+        }
+        CompletableFuture<StoredResponse> original = new CompletableFuture<>();
+        Thread.ofVirtual().name("idempotency-wait").start(() -> pollRemote(key, original));
+        original.whenComplete((response, error) -> {
+            if (error != null) {
+                responses.asMap().remove(key, entry);
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(response);
+            }
+        });
+        return new Claim(false, remote.fingerprint(), mine);
+    }
+
+    // The original's response, or null if it did not finish within the wait timeout
+    public StoredResponse await(Claim claim) throws InterruptedException, ExecutionException {
+        try {
+            return claim.result().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        }
+    }
+
+    // Hands the response to waiting duplicates and keeps it for later ones if it is replayable
+    public void complete(String key, Claim claim, StoredResponse response) {
+        // Retryable statuses ask the client to try again, so the retry must run rather than replay them
+        boolean keep = response.status() < 500 && !RETRYABLE_STATUSES.contains(response.status())
+                && response.body().length <= maxBody.toBytes();
+        if (keep) {
+            if (persist) saveRemote(key, claim.fingerprint(), response);
+        } else {
+            release(key, claim);
+        }
+        claim.result().complete(response);
+    }
+
+    // The request failed without a response; the next duplicate runs again
+    public void abandon(String key, Claim claim, Throwable cause) {
+        release(key, claim);
+        claim.result().completeExceptionally(cause);
+    }
+
+    private void release(String key, Claim claim) {
+        responses.asMap().remove(key, new Entry(claim.fingerprint(), claim.result()));
+        if (persist) {
+            try {
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(key)), IdempotencyRecord.class);
+            } catch (RuntimeException e) {
+                log.warn("Could not release idempotency key {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private record RemoteClaim(String fingerprint) {}
+
+    // Null if this instance now owns the key, otherwise the remote original's fingerprint
+    private RemoteClaim claimRemote(String key, String fingerprint) {
+        // Until completed the marker only lives a little longer than anyone would wait for it
+        Instant markerExpiry = Instant.now().plus(waitTimeout.multipliedBy(2));
+        try {
+            mongoTemplate.insert(new IdempotencyRecord(key, IdempotencyRecord.IN_PROGRESS, fingerprint, null, null,
+                    markerExpiry));
+            return null;
+        } catch (DuplicateKeyException e) {
+            // If it is gone already, polling finds that out and this request claims the key afresh
+            IdempotencyRecord original = mongoTemplate.findById(key, IdempotencyRecord.class);
+            return new RemoteClaim(original != null ? original.getFingerprint() : null);
+        }
+    }
+
+    private void pollRemote(String key, CompletableFuture<StoredResponse> remote) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                IdempotencyRecord record = mongoTemplate.findById(key, IdempotencyRecord.class);
+                if (record == null) {
+                    remote.completeExceptionally(new CancellationException("Released by its owner"));
+                    return;
+                }
+                if (record.getStatus() != IdempotencyRecord.IN_PROGRESS) {
+                    remote.complete(new StoredResponse(record.getStatus(), record.getContentType(), record.getBody()));
+                    return;
+                }
+                Thread.sleep(REMOTE_POLL_MS);
+            }
+            remote.completeExceptionally(new TimeoutException("Still in progress on another instance"));
+        } catch (InterruptedException e) {
+            remote.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            remote.completeExceptionally(e);
+        }
+    }
+
+    private void saveRemote(String key, String fingerprint, StoredResponse response) {
+        try {
+            mongoTemplate.save(new IdempotencyRecord(key, response.status(), fingerprint, response.contentType(),
+                    response.body(), Instant.now().plus(ttl)));
+        } catch (RuntimeException e) {
+            log.warn("Could not persist response for idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+}
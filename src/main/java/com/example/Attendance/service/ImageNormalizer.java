@@ -0,0 +1,110 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.util.ImageUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Check-in photos are decoded once (subsampled towards attendance.image.max-dimension), turned upright
+ * by their EXIF orientation, fitted within max-dimension and re-encoded as JPEG; the result is what face
+ * verification and MinIO get. Images that cannot be decoded, declare more than attendance.image.max-pixels
+ * or would not get smaller are passed on unchanged.
+ */
+@Service
+public class ImageNormalizer {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageNormalizer.class);
+
+    public record NormalizedImage(byte[] bytes, String contentType, boolean reencoded) {}
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${attendance.image.normalize:true}")
+    private boolean enabled;
+    @Value("${attendance.image.max-dimension:1280}")
+    private int maxDimension;
+    @Value("${attendance.image.jpeg-quality:0.85}")
+    private float jpegQuality;
+    @Value("${attendance.image.max-pixels:50000000}")
+    private long maxPixels;
+
+    private Timer decodeTimer;
+    private Timer resizeTimer;
+    private Timer encodeTimer;
+    private DistributionSummary bytesIn;
+    private DistributionSummary bytesOut;
+    private Counter bytesSaved;
+    private Counter skipped;
+
+    public ImageNormalizer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        decodeTimer = Timer.builder("attendance.image.normalize").tag("stage", "decode").register(meterRegistry);
+        resizeTimer = Timer.builder("attendance.image.normalize").tag("stage", "resize").register(meterRegistry);
+        encodeTimer = Timer.builder("attendance.image.normalize").tag("stage", "encode").register(meterRegistry);
+        bytesIn = DistributionSummary.builder("attendance.image.bytes.in").baseUnit("bytes").register(meterRegistry);
+        bytesOut = DistributionSummary.builder("attendance.image.bytes.out").baseUnit("bytes").register(meterRegistry);
+        bytesSaved = Counter.builder("attendance.image.bytes.saved").baseUnit("bytes").register(meterRegistry);
+        skipped = Counter.builder("attendance.image.normalize.skipped").register(meterRegistry);
+    }
+
+    public NormalizedImage normalize(byte[] original, String contentType) {
+        if (!enabled || original.length == 0) {
+            return new NormalizedImage(original, contentType, false);
+        }
+        bytesIn.record(original.length);
+
+        try {
+            // 1. Decode once, at no more resolution than needed; oversized images are refused from the header
+            long startedAt = System.nanoTime();
+            int orientation = ImageUtil.readExifOrientation(original);
+            ImageUtil.DecodedImage decodedImage = ImageUtil.decodeWithin(original, maxDimension, maxPixels);
+            BufferedImage decoded = decodedImage.image();
+            long decodedAt = System.nanoTime();
+            decodeTimer.record(decodedAt - startedAt, TimeUnit.NANOSECONDS);
+
+            // 2. Upright and within the face-recognition resolution
+            BufferedImage normalized = ImageUtil.orientAndScale(decoded, orientation, maxDimension);
+            long resizedAt = System.nanoTime();
+            resizeTimer.record(resizedAt - decodedAt, TimeUnit.NANOSECONDS);
+
+            // 3. Re-encode; an upright JPEG that is small enough is kept as it came
+            boolean untouched = normalized == decoded && !decodedImage.subsampled();
+            if (untouched && "image/jpeg".equalsIgnoreCase(contentType)) {
+                return unchangedResult(original, contentType);
+            }
+            byte[] encoded = ImageUtil.encodeJpeg(normalized, jpegQuality);
+            encodeTimer.record(System.nanoTime() - resizedAt, TimeUnit.NANOSECONDS);
+            if (untouched && encoded.length >= original.length) {
+                return unchangedResult(original, contentType);
+            }
+
+            bytesOut.record(encoded.length);
+            bytesSaved.increment(Math.max(0, original.length - encoded.length));
+            return new NormalizedImage(encoded, "image/jpeg", true);
+        } catch (IOException | RuntimeException e) {
+            skipped.increment();
+            log.debug("Forwarding image unchanged, could not normalize it: {}", e.getMessage());
+            return unchangedResult(original, contentType);
+        }
+    }
+
+    private NormalizedImage unchangedResult(byte[] original, String contentType) {
+        bytesOut.record(original.length);
+        return new NormalizedImage(original, contentType, false);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.dto.KioskEventBatchRequest.KioskEvent;
+import com.example.Attendance.exception.CustomException;
+import com.example.Attendance.model.CheckInOut;
+import com.example.Attendance.model.DailyAttendance;
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+import com.example.Attendance.repository.AttendanceSummaryStore;
+import com.example.Attendance.repository.DailyAttendanceRepository;
+import com.example.Attendance.repository.DailyAttendanceRepositoryCustom.DayLog;
+import com.example.Attendance.util.EpochUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Batch ingestion of check-ins/checkouts recorded offline by kiosks. Each event keeps its own
+ * timestamp and lands on the day it happened; events already stored (same eventId) are reported
+ * as duplicates, so a kiosk can safely resend a whole batch.
+ */
+@Service
+@RequiredArgsConstructor
+public class KioskEventIngestionService {
+
+    private static final ZoneId ZONE_ID = ZoneId.of("Asia/Kolkata");
+    private static final long MAX_CLOCK_SKEW_SECONDS = 300;
+
+    private final DailyAttendanceRepository dailyRepo;
+    private final AttendanceSummaryStore summaryStore;
+    private final RegisteredUserIndex registeredUserIndex;
+    private final MonthlySummarySnapshotService summarySnapshots;
+    private final AbsenceBackfillService absenceBackfill;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${attendance.kiosk.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    public Map<String, Object> ingest(List<KioskEvent> events) {
+        if (events == null || events.isEmpty()) {
+            throw new CustomException("No events in the batch", HttpStatus.BAD_REQUEST);
+        }
+        if (events.size() > maxBatchSize) {
+            throw new CustomException("At most " + maxBatchSize + " events per batch", HttpStatus.BAD_REQUEST);
+        }
+
+        // 1. Validate each event and route it to its day (IST)
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<Integer, Long> dayOf = new HashMap<>();
+        Set<String> seenEventIds = new HashSet<>();
+        long now = EpochUtil.currentEpochSeconds();
+        for (int i = 0; i < events.size(); i++) {
+            KioskEvent event = events.get(i);
+            String rejection = validate(event, now);
+            if (rejection == null && !seenEventIds.add(event.getEventId())) {
+                results.add(result(event, "duplicate", "Repeated within the batch"));
+                continue;
+            }
+            results.add(rejection == null ? null : result(event, "rejected", rejection));
+            if (rejection == null) {
+                LocalDate day = EpochUtil.fromEpochSecondsToDate(event.getTimestampEpoch(), ZONE_ID);
+                dayOf.put(i, EpochUtil.toEpochSeconds(day, ZONE_ID));
+            }
+        }
+
+        // 2. The days these events go to, in one query: drops stored events and checkouts without a check-in
+        Map<String, DailyAttendance> storedDays = new HashMap<>();
+        Set<String> empIds = new HashSet<>();
+        dayOf.keySet().forEach(i -> empIds.add(events.get(i).getEmpId()));
+        if (!dayOf.isEmpty()) {
+            dailyRepo.findByEmployeeIdInAndDateEpochIn(empIds, new HashSet<>(dayOf.values()))
+                    .forEach(day -> storedDays.put(dayKey(day.getEmployeeId(), day.getDateEpoch()), day));
+        }
+
+        Set<String> checkinDays = new HashSet<>();
+        dayOf.forEach((i, dateEpoch) -> {
+            if ("checkin".equals(events.get(i).getType())) checkinDays.add(dayKey(events.get(i).getEmpId(), dateEpoch));
+        });
+
+        List<Integer> toWrite = new ArrayList<>();
+        List<DayLog> dayLogs = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (!dayOf.containsKey(i)) continue;
+            KioskEvent event = events.get(i);
+            String key = dayKey(event.getEmpId(), dayOf.get(i));
+            DailyAttendance stored = storedDays.get(key);
+
+            if (stored != null && hasEvent(stored, event.getEventId())) {
+                results.set(i, result(event, "duplicate", "Already recorded"));
+            } else if ("checkout".equals(event.getType()) && !checkinDays.contains(key) && !hasCheckin(stored)) {
+                results.set(i, result(event, "rejected", "No check-in found for that day"));
+            } else {
+                String imageUrl = "checkin".equals(event.getType()) ? event.getImageUrl() : null;
+                dayLogs.add(new DayLog(event.getEmpId(), dayOf.get(i),
+                        new CheckInOut(event.getType(), event.getTimestampEpoch(), imageUrl, event.getEventId())));
+                toWrite.add(i);
+            }
+        }
+
+        // 3. One unordered bulk write; replays racing with this batch come back as duplicates
+        Set<Integer> duplicates = dailyRepo.appendEvents(dayLogs);
+        Map<String, Set<LocalDate>> presentDays = new LinkedHashMap<>();
+        for (int n = 0; n < toWrite.size(); n++) {
+            int i = toWrite.get(n);
+            KioskEvent event = events.get(i);
+            if (duplicates.contains(n)) {
+                results.set(i, result(event, "duplicate", "Already recorded"));
+                continue;
+            }
+            results.set(i, result(event, "recorded", null));
+            eventPublisher.publishEvent(new AttendanceActionEvent(event.getEmpId(), event.getType(), event.getTimestampEpoch(), dayOf.get(i)));
+            if ("checkin".equals(event.getType())) {
+                presentDays.computeIfAbsent(event.getEmpId(), id -> new TreeSet<>())
+                        .add(EpochUtil.fromEpochSecondsToDate(dayOf.get(i), ZONE_ID));
+            }
+        }
+
+        // 4. Summary follow-ups once per employee
+        presentDays.forEach((empId, days) -> {
+            Map<LocalDate, DayAttendanceMeta> present = new LinkedHashMap<>();
+            days.forEach(day -> present.put(day, new DayAttendanceMeta("Present")));
+            summaryStore.setDays(empId, present);
+            summarySnapshots.invalidate(empId, days);
+            absenceBackfill.onCheckin(empId);
+        });
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String outcome : List.of("recorded", "duplicate", "rejected")) {
+            counts.put(outcome, results.stream().filter(r -> outcome.equals(r.get("outcome"))).count());
+        }
+        return Map.of(
+                "received", events.size(),
+                "counts", counts,
+                "results", results
+        );
+    }
+
+    private String validate(KioskEvent event, long now) {
+        if (event == null) return "Empty event";
+        if (event.getEventId() == null || event.getEventId().isBlank()) return "eventId is required";
+        if (event.getEmpId() == null || event.getEmpId().isBlank()) return "empId is required";
+        if (!"checkin".equals(event.getType()) && !"checkout".equals(event.getType())) return "type must be checkin or checkout";
+        if (event.getTimestampEpoch() <= 0 || event.getTimestampEpoch() > now + MAX_CLOCK_SKEW_SECONDS) {
+            return "timestampEpoch is missing or in the future";
+        }
+        if (!registeredUserIndex.contains(event.getEmpId())) return "User is not registered";
+        return null;
+    }
+
+    private boolean hasEvent(DailyAttendance day, String eventId) {
+        return day.getLogs() != null && day.getLogs().stream().anyMatch(log -> eventId.equals(log.getEventId()));
+    }
+
+    private boolean hasCheckin(DailyAttendance day) {
+        return day != null && day.getLogs() != null && day.getLogs().stream().anyMatch(log -> "checkin".equals(log.getType()));
+    }
+
+    private String dayKey(String employeeId, long dateEpoch) {
+        return employeeId + "|" + dateEpoch;
+    }
+
+    private Map<String, Object> result(KioskEvent event, String outcome, String reason) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("eventId", event == null ? null : event.getEventId());
+        result.put("outcome", outcome);
+        if (reason != null) result.put("reason", reason);
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.model.*;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Creates the indexes declared on the mapped models (@Indexed / @CompoundIndex) at startup and
+ * reports how often each index is used. Replaces spring.data.mongodb.auto-index-creation, which only
+ * covers entities as they are first touched and fails silently.
+ */
+@Service
+public class MongoIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexService.class);
+
+    // Every model whose collection this service queries
+    public static final List<Class<?>> MANAGED_ENTITIES = List.of(
+            DailyAttendance.class,
+            RegisteredUser.class,
+            Employee.class,
+            LeaveModel.class,
+            EmployeeAttendanceSummary.class,
+            AttendanceMonthBucket.class,
+            MonthlySummarySnapshot.class,
+            AttendanceBackfill.class,
+            IdempotencyRecord.class,
+            PendingVerification.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${attendance.indexes.create-on-startup:true}")
+    private boolean createOnStartup;
+
+    public MongoIndexService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (createOnStartup) {
+            ensureIndexes();
+        }
+    }
+
+    // Creates missing indexes; one that clashes with an existing index is logged and skipped
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> entity : MANAGED_ENTITIES) {
+            for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+                try {
+                    mongoTemplate.indexOps(entity).ensureIndex(index);
+                } catch (Exception e) {
+                    log.error("Could not create index {} on {}: {}",
+                            index.getIndexKeys(), mongoTemplate.getCollectionName(entity), e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Per collection, each index with its key and the number of operations that used it since `since`
+    public List<Map<String, Object>> indexUsage() {
+        List<Map<String, Object>> collections = new ArrayList<>();
+        for (Class<?> entity : MANAGED_ENTITIES) {
+            String collectionName = mongoTemplate.getCollectionName(entity);
+            List<Map<String, Object>> indexes = new ArrayList<>();
+            for (Document stats : mongoTemplate.getCollection(collectionName)
+                    .aggregate(List.of(new Document("$indexStats", new Document())))) {
+                Document accesses = stats.get("accesses", Document.class);
+                Map<String, Object> index = new LinkedHashMap<>();
+                index.put("name", stats.getString("name"));
+                index.put("key", stats.get("key"));
+                index.put("ops", accesses.get("ops"));
+                index.put("since", accesses.getDate("since"));
+                indexes.add(index);
+            }
+            collections.add(Map.of("collection", collectionName, "indexes", indexes));
+        }
+        return collections;
+    }
+}
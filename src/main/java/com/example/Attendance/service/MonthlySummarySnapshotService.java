@@ -0,0 +1,169 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.dto.MonthlyAttendanceSummaryDTO;
+import com.example.Attendance.model.MonthlySummarySnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Materialized monthly summaries. Months that have ended are frozen in attendance_summary_snapshots;
+ * the running month is kept in memory until something that feeds it (a check-in, bulk marking,
+ * a leave change) invalidates it, or the day rolls over.
+ */
+@Service
+public class MonthlySummarySnapshotService {
+
+    private static final ZoneId ZONE_ID = ZoneId.of("Asia/Kolkata");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${attendance.summary-snapshots.open-month.max-size:20000}")
+    private long openMonthMaxSize;
+    @Value("${attendance.summary-snapshots.open-month.ttl:PT15M}")
+    private Duration openMonthTtl;
+
+    // snapshotId -> summary of the running month, valid only for the day it was computed up to
+    private Cache<String, OpenMonth> openMonths;
+    // snapshotId -> version of the running month, bumped by every invalidation
+    private Cache<String, Long> openVersions;
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    private record OpenMonth(LocalDate asOf, MonthlyAttendanceSummaryDTO summary) {}
+
+    /**
+     * What a read found: the materialized summaries, and for every employee the version the month had.
+     * Passing the versions back to saveClosed / saveOpen drops summaries invalidated in between.
+     */
+    public record Lookup(Map<String, MonthlyAttendanceSummaryDTO> summaries, Map<String, Long> versions) {}
+
+    @PostConstruct
+    public void initCache() {
+        openMonths = Caffeine.newBuilder()
+                .maximumSize(openMonthMaxSize)
+                .expireAfterWrite(openMonthTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, openMonths, "monthlySummaries");
+        // Outlives any computation; a version that expired reads as 0 and a save against it is dropped
+        openVersions = Caffeine.newBuilder()
+                .maximumSize(openMonthMaxSize)
+                .expireAfterWrite(openMonthTtl)
+                .build();
+    }
+
+    public Lookup findClosed(Collection<String> employeeIds, int year, int month) {
+        List<String> ids = employeeIds.stream().map(id -> MonthlySummarySnapshot.snapshotId(id, year, month)).toList();
+        Map<String, MonthlyAttendanceSummaryDTO> summaries = new HashMap<>();
+        Map<String, Long> versions = new HashMap<>();
+        employeeIds.forEach(id -> versions.put(id, 0L));
+        mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), MonthlySummarySnapshot.class)
+                .forEach(snapshot -> {
+                    versions.put(snapshot.getEmployeeId(), snapshot.getVersion());
+                    if (snapshot.getSummary() != null) {
+                        summaries.put(snapshot.getEmployeeId(), snapshot.getSummary());
+                    }
+                });
+        return new Lookup(summaries, versions);
+    }
+
+    // Freezes the summaries of an ended month; an existing snapshot, or one invalidated since the read, is kept
+    public void saveClosed(Map<String, MonthlyAttendanceSummaryDTO> summaries, Map<String, Long> versions, int year, int month) {
+        if (summaries.isEmpty()) return;
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MonthlySummarySnapshot.class);
+        summaries.forEach((employeeId, summary) -> {
+            String id = MonthlySummarySnapshot.snapshotId(employeeId, year, month);
+            // No match inserts, and the insert hits the _id of a snapshot that moved on: E11000, skipped below
+            bulk.upsert(Query.query(Criteria.where("_id").is(id)
+                            .and("version").is(versions.getOrDefault(employeeId, 0L))
+                            .and("summary").exists(false)),
+                    new Update()
+                            .setOnInsert("employeeId", employeeId)
+                            .setOnInsert("year", year)
+                            .setOnInsert("month", month)
+                            .set("summary", summary)
+                            .set("closedAt", now));
+        });
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+            }
+        }
+    }
+
+    public Lookup findOpen(Collection<String> employeeIds, int year, int month, LocalDate asOf) {
+        Map<String, MonthlyAttendanceSummaryDTO> summaries = new HashMap<>();
+        Map<String, Long> versions = new HashMap<>();
+        for (String employeeId : employeeIds) {
+            String id = MonthlySummarySnapshot.snapshotId(employeeId, year, month);
+            versions.put(employeeId, Optional.ofNullable(openVersions.getIfPresent(id)).orElse(0L));
+            OpenMonth cached = openMonths.getIfPresent(id);
+            if (cached != null && cached.asOf().equals(asOf)) {
+                summaries.put(employeeId, new MonthlyAttendanceSummaryDTO(cached.summary()));
+            }
+        }
+        return new Lookup(summaries, versions);
+    }
+
+    // Caches the running month unless it was invalidated after the read the summaries were computed from
+    public void saveOpen(Map<String, MonthlyAttendanceSummaryDTO> summaries, Map<String, Long> versions, int year, int month, LocalDate asOf) {
+        summaries.forEach((employeeId, summary) -> {
+            String id = MonthlySummarySnapshot.snapshotId(employeeId, year, month);
+            long readVersion = versions.getOrDefault(employeeId, 0L);
+            OpenMonth entry = new OpenMonth(asOf, new MonthlyAttendanceSummaryDTO(summary));
+            // compute() serializes with invalidate() on the same key
+            openMonths.asMap().compute(id, (key, current) ->
+                    Optional.ofNullable(openVersions.getIfPresent(id)).orElse(0L) == readVersion ? entry : current);
+        });
+    }
+
+    // Drops the cached or frozen summary of the month containing date; the next read recomputes it
+    public void invalidate(String employeeId, LocalDate date) {
+        String id = MonthlySummarySnapshot.snapshotId(employeeId, date.getYear(), date.getMonthValue());
+        openMonths.asMap().compute(id, (key, current) -> {
+            openVersions.put(id, versionSequence.incrementAndGet());
+            return null;
+        });
+        if (!date.withDayOfMonth(date.lengthOfMonth()).isBefore(LocalDate.now(ZONE_ID))) return;
+        // Kept as an unset summary with a new version, so a save from an older read cannot freeze it again
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)), new Update()
+                .setOnInsert("employeeId", employeeId)
+                .setOnInsert("year", date.getYear())
+                .setOnInsert("month", date.getMonthValue())
+                .unset("summary")
+                .unset("closedAt")
+                .inc("version", 1), MonthlySummarySnapshot.class);
+    }
+
+    public void invalidate(String employeeId, Collection<LocalDate> dates) {
+        Map<String, LocalDate> months = new LinkedHashMap<>();
+        dates.forEach(date -> months.putIfAbsent(date.getYear() + "-" + date.getMonthValue(), date));
+        months.values().forEach(date -> invalidate(employeeId, date));
+    }
+}
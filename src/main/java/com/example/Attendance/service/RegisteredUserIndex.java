@@ -0,0 +1,60 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.model.RegisteredUser;
+import com.example.Attendance.repository.RegisteredUserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory set of registered empIds, answering registration checks (positive and negative) without Mongo
+@Service
+@RequiredArgsConstructor
+public class RegisteredUserIndex {
+
+    private final MongoTemplate mongoTemplate;
+    private final RegisteredUserRepository registeredUserRepository;
+
+    // empId -> time it entered the index, so a refresh never drops an id added while it was reading
+    private final Map<String, Long> empIds = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        refresh();
+    }
+
+    // Picks up registrations and removals made through other instances or the face service
+    @Scheduled(fixedDelayString = "${attendance.registered-users.refresh-ms:30000}",
+            initialDelayString = "${attendance.registered-users.refresh-ms:30000}")
+    public void refresh() {
+        long startedAt = System.nanoTime();
+        Set<String> current = new HashSet<>(mongoTemplate.findDistinct(new Query(), "empId", RegisteredUser.class, String.class));
+
+        current.forEach(empId -> empIds.putIfAbsent(empId, startedAt));
+        empIds.entrySet().removeIf(entry -> !current.contains(entry.getKey()) && entry.getValue() - startedAt < 0);
+    }
+
+    public boolean contains(String empId) {
+        return empId != null && empIds.containsKey(empId);
+    }
+
+    // Re-reads one empId, e.g. right after registering it
+    public void refresh(String empId) {
+        if (registeredUserRepository.findByEmpId(empId).isPresent()) {
+            empIds.put(empId, System.nanoTime());
+        } else {
+            empIds.remove(empId);
+        }
+    }
+
+    public int size() {
+        return empIds.size();
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.exception.CustomException;
+import com.example.Attendance.model.Employee;
+import com.example.Attendance.util.EpochUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Live team check-in status for manager dashboards over server-sent events. A subscriber gets one
+ * "snapshot" (the team-status response) and then "update" events with the changed members, fed by
+ * in-process AttendanceActionEvents. Pending updates are coalesced per member and sent on the
+ * subscriber's own virtual thread, so a slow dashboard holds at most one entry per team member.
+ * Updates are held until the first snapshot is sent; a snapshot drops the buffered updates it already
+ * shows (by action time) and the newer ones are sent right after it.
+ */
+@Service
+public class TeamStatusStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(TeamStatusStreamService.class);
+
+    private static final ZoneId ZONE_ID = ZoneId.of("Asia/Kolkata");
+
+    private final AttendanceService attendanceService;
+    private final EmployeeService employeeService;
+    private final ExecutorService checkinExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${attendance.team-status.stream-timeout:30m}")
+    private Duration streamTimeout;
+    @Value("${attendance.team-status.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Subscriber>> subscribersByEmployee = new ConcurrentHashMap<>();
+
+    public TeamStatusStreamService(AttendanceService attendanceService, EmployeeService employeeService,
+                                   ExecutorService checkinExecutor, MeterRegistry meterRegistry) {
+        this.attendanceService = attendanceService;
+        this.employeeService = employeeService;
+        this.checkinExecutor = checkinExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("team.status.subscribers", subscribers, Set::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    public SseEmitter subscribe(String managerId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new CustomException("Too many open team status streams, please retry later", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        // 1. Listen to the team first, so nothing between the snapshot read and now is missed
+        Employee manager = employeeService.getEmployeeByEmpId(managerId)
+                .orElseThrow(() -> new CustomException("Manager not found", HttpStatus.NOT_FOUND));
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(manager.getAssignTo(), emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        subscriber.team.forEach(empId ->
+                subscribersByEmployee.computeIfAbsent(empId, id -> ConcurrentHashMap.newKeySet()).add(subscriber));
+
+        // 2. Initial snapshot, the same payload as GET manager/team-status
+        try {
+            Map<String, Object> snapshot = attendanceService.getTeamCheckInStatus(managerId);
+            subscriber.rememberNames(snapshot);
+            subscriber.offerSnapshot(snapshot);
+        } catch (RuntimeException e) {
+            unsubscribe(subscriber);
+            throw e;
+        }
+        return emitter;
+    }
+
+    @EventListener
+    public void onAttendanceAction(AttendanceActionEvent event) {
+        // Backdated kiosk events do not change today's status
+        if (event.dateEpoch() != todayEpoch()) return;
+
+        Set<Subscriber> watching = subscribersByEmployee.get(event.employeeId());
+        if (watching == null) return;
+        watching.forEach(subscriber -> subscriber.offerUpdate(event));
+    }
+
+    // Keeps idle connections open through proxies and finds closed ones
+    @Scheduled(fixedDelayString = "${attendance.team-status.heartbeat-ms:25000}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::offerHeartbeat);
+    }
+
+    // A new day starts with nobody checked in; sent from memory instead of every dashboard re-reading
+    @Scheduled(cron = "0 0 0 * * *", zone = "Asia/Kolkata")
+    public void startNewDay() {
+        subscribers.forEach(subscriber -> subscriber.offerSnapshot(subscriber.emptySnapshot()));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) return;
+        subscriber.team.forEach(empId -> subscribersByEmployee.computeIfPresent(empId, (id, watching) -> {
+            watching.remove(subscriber);
+            return watching.isEmpty() ? null : watching;
+        }));
+    }
+
+    private long todayEpoch() {
+        return EpochUtil.toEpochSeconds(LocalDate.now(ZONE_ID), ZONE_ID);
+    }
+
+    private final class Subscriber {
+
+        private final List<String> team;
+        private final SseEmitter emitter;
+        private final Map<String, String> names = new ConcurrentHashMap<>();
+
+        // Guarded by this: what the next flush sends
+        private Map<String, Object> pendingSnapshot;
+        private final Map<String, AttendanceActionEvent> pendingUpdates = new LinkedHashMap<>();
+        private final Map<String, Long> latestAction = new HashMap<>();
+        private boolean pendingHeartbeat;
+        private boolean flushing;
+        private boolean snapshotOffered;
+
+        Subscriber(List<String> team, SseEmitter emitter) {
+            this.team = team != null ? List.copyOf(team) : List.of();
+            this.emitter = emitter;
+        }
+
+        @SuppressWarnings("unchecked")
+        void rememberNames(Map<String, Object> snapshot) {
+            for (Map<String, Object> member : (List<Map<String, Object>>) snapshot.get("teamStatus")) {
+                names.put((String) member.get("empId"), String.valueOf(member.get("name")));
+            }
+        }
+
+        Map<String, Object> emptySnapshot() {
+            List<Map<String, Object>> teamStatus = new ArrayList<>();
+            names.forEach((empId, name) -> {
+                Map<String, Object> memberStatus = new HashMap<>();
+                memberStatus.put("empId", empId);
+                memberStatus.put("name", name);
+                memberStatus.put("status", "not_checked_in");
+                teamStatus.add(memberStatus);
+            });
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("teamStatus", teamStatus);
+            snapshot.put("totalMembers", team.size());
+            snapshot.put("checkedInCount", 0L);
+            return snapshot;
+        }
+
+        void offerSnapshot(Map<String, Object> snapshot) {
+            Map<String, Long> shown = lastActionEpochs(snapshot);
+            long today = todayEpoch();
+            synchronized (this) {
+                pendingSnapshot = snapshot;
+                snapshotOffered = true;
+                // Updates the snapshot already shows, or of an earlier day, are dropped; newer ones follow it
+                pendingUpdates.values().removeIf(event -> event.dateEpoch() != today
+                        || event.timestampEpoch() <= shown.getOrDefault(event.employeeId(), Long.MIN_VALUE));
+                shown.forEach((empId, epoch) -> latestAction.merge(empId, epoch, Math::max));
+            }
+            scheduleFlush();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Long> lastActionEpochs(Map<String, Object> snapshot) {
+            Map<String, Long> epochs = new HashMap<>();
+            for (Map<String, Object> member : (List<Map<String, Object>>) snapshot.get("teamStatus")) {
+                if (member.get("lastActionTime") instanceof String time) {
+                    epochs.put((String) member.get("empId"), EpochUtil.toEpochSeconds(LocalDateTime.parse(time), ZONE_ID));
+                }
+            }
+            return epochs;
+        }
+
+        void offerUpdate(AttendanceActionEvent event) {
+            synchronized (this) {
+                // Latest action per member wins; older replays are dropped
+                if (event.timestampEpoch() < latestAction.getOrDefault(event.employeeId(), Long.MIN_VALUE)) return;
+                latestAction.put(event.employeeId(), event.timestampEpoch());
+                pendingUpdates.remove(event.employeeId());
+                pendingUpdates.put(event.employeeId(), event);
+            }
+            scheduleFlush();
+        }
+
+        void offerHeartbeat() {
+            synchronized (this) {
+                pendingHeartbeat = true;
+            }
+            scheduleFlush();
+        }
+
+        private void scheduleFlush() {
+            synchronized (this) {
+                if (flushing) return;
+                flushing = true;
+            }
+            checkinExecutor.execute(this::flush);
+        }
+
+        private void flush() {
+            while (true) {
+                Map<String, Object> snapshot;
+                List<AttendanceActionEvent> updates;
+                boolean heartbeat;
+                synchronized (this) {
+                    // Nothing goes out before the first snapshot; updates stay buffered for it
+                    if (!snapshotOffered) {
+                        flushing = false;
+                        return;
+                    }
+                    snapshot = pendingSnapshot;
+                    updates = new ArrayList<>(pendingUpdates.values());
+                    heartbeat = pendingHeartbeat;
+                    pendingSnapshot = null;
+                    pendingUpdates.clear();
+                    pendingHeartbeat = false;
+                    if (snapshot == null && updates.isEmpty() && !heartbeat) {
+                        flushing = false;
+                        return;
+                    }
+                }
+
+                try {
+                    if (snapshot != null) {
+                        emitter.send(SseEmitter.event().name("snapshot").data(snapshot, MediaType.APPLICATION_JSON));
+                    }
+                    if (!updates.isEmpty()) {
+                        List<Map<String, Object>> changed = updates.stream().map(this::memberStatus).toList();
+                        emitter.send(SseEmitter.event().name("update").data(changed, MediaType.APPLICATION_JSON));
+                    }
+                    if (heartbeat && snapshot == null && updates.isEmpty()) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                } catch (Exception e) {
+                    // The client went away; flushing stays set so nothing more is scheduled
+                    log.debug("Closing team status stream: {}", e.getMessage());
+                    unsubscribe(this);
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+
+        private Map<String, Object> memberStatus(AttendanceActionEvent event) {
+            Map<String, Object> memberStatus = new HashMap<>();
+            memberStatus.put("empId", event.employeeId());
+            memberStatus.put("name", names.get(event.employeeId()));
+            memberStatus.put("status", "checkin".equalsIgnoreCase(event.type()) ? "checked_in" : "checked_out");
+            memberStatus.put("lastActionTime", EpochUtil.fromEpochSeconds(event.timestampEpoch(), ZONE_ID).toString());
+            return memberStatus;
+        }
+    }
+}
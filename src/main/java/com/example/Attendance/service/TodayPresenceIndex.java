@@ -0,0 +1,168 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.model.CheckInOut;
+import com.example.Attendance.model.DailyAttendance;
+import com.example.Attendance.util.EpochUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Last check-in/checkout of every employee for the current IST day, answering "is checked in" and
+ * team-status lookups without reading daily_attendance. Rebuilt from Mongo at startup and at midnight,
+ * kept current by AttendanceActionEvents and merged with Mongo periodically for writes it did not see.
+ * The index can lag behind checkouts made through other instances, so Mongo stays the authority:
+ * "checked in" answers are confirmed against the stored last log before a check-in is refused, and
+ * appendCheckin/appendCheckout still guard on it for "not checked in" answers.
+ */
+@Service
+public class TodayPresenceIndex {
+
+    private static final ZoneId ZONE_ID = ZoneId.of("Asia/Kolkata");
+
+    public record Presence(String type, long timestampEpoch) {
+
+        public boolean isCheckedIn() {
+            return "checkin".equalsIgnoreCase(type);
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private record Day(long dateEpoch, Map<String, Presence> presence) {}
+
+    private volatile Day today;
+
+    public TodayPresenceIndex(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void load() {
+        startDay(todayEpoch());
+        Gauge.builder("attendance.presence.size", this, index -> index.today.presence().size()).register(meterRegistry);
+    }
+
+    @Scheduled(cron = "0 0 0 * * *", zone = "Asia/Kolkata")
+    public void rollover() {
+        dayFor(todayEpoch());
+    }
+
+    // Picks up writes made through other instances
+    @Scheduled(fixedDelayString = "${attendance.presence.refresh-ms:300000}",
+            initialDelayString = "${attendance.presence.refresh-ms:300000}")
+    public void refresh() {
+        Day day = today;
+        readLastLogs(null, day.dateEpoch()).forEach((empId, presence) -> record(day, empId, presence));
+    }
+
+    @EventListener
+    public void onAttendanceAction(AttendanceActionEvent event) {
+        Day day = dayFor(event.dateEpoch());
+        if (day != null) {
+            record(day, event.employeeId(), new Presence(event.type(), event.timestampEpoch()));
+        }
+    }
+
+    public boolean isCheckedIn(String employeeId, long dateEpoch) {
+        return !checkedIn(List.of(employeeId), dateEpoch).isEmpty();
+    }
+
+    // Employees whose last action that day is a check-in; the index's positives are re-read from Mongo
+    public Set<String> checkedIn(Collection<String> employeeIds, long dateEpoch) {
+        Map<String, Presence> indexed = lastActions(employeeIds, dateEpoch);
+        indexed.values().removeIf(presence -> !presence.isCheckedIn());
+        if (indexed.isEmpty()) return Set.of();
+
+        Map<String, Presence> stored = readLastLogs(indexed.keySet(), dateEpoch);
+        Day day = dayFor(dateEpoch);
+        Set<String> checkedIn = new HashSet<>();
+        indexed.forEach((employeeId, presence) -> {
+            Presence last = stored.get(employeeId);
+            if (last != null && last.isCheckedIn()) checkedIn.add(employeeId);
+            if (day == null || presence.equals(last)) return;
+            // Stale entry: replaced by the stored log unless an event updated it meanwhile
+            if (last == null) day.presence().remove(employeeId, presence);
+            else day.presence().replace(employeeId, presence, last);
+        });
+        return checkedIn;
+    }
+
+    // Last action per employee on that day; employees without one are left out
+    public Map<String, Presence> lastActions(Collection<String> employeeIds, long dateEpoch) {
+        Day day = dayFor(dateEpoch);
+        if (day == null) {
+            // A request that started before midnight asking about the previous day
+            return readLastLogs(employeeIds, dateEpoch);
+        }
+        Map<String, Presence> lastActions = new HashMap<>();
+        for (String employeeId : employeeIds) {
+            Presence presence = day.presence().get(employeeId);
+            if (presence != null) lastActions.put(employeeId, presence);
+        }
+        return lastActions;
+    }
+
+    // The index for that day, starting it if the day has just begun; null for earlier days
+    private Day dayFor(long dateEpoch) {
+        Day day = today;
+        if (dateEpoch == day.dateEpoch()) return day;
+        if (dateEpoch < day.dateEpoch()) return null;
+        synchronized (this) {
+            if (dateEpoch > today.dateEpoch()) {
+                startDay(dateEpoch);
+            }
+            return today.dateEpoch() == dateEpoch ? today : null;
+        }
+    }
+
+    // Published before it is filled, so events arriving during the read are not lost
+    private synchronized void startDay(long dateEpoch) {
+        Day day = new Day(dateEpoch, new ConcurrentHashMap<>());
+        today = day;
+        readLastLogs(null, dateEpoch).forEach((empId, presence) -> record(day, empId, presence));
+    }
+
+    private void record(Day day, String employeeId, Presence presence) {
+        day.presence().merge(employeeId, presence,
+                (current, update) -> update.timestampEpoch() >= current.timestampEpoch() ? update : current);
+    }
+
+    // Only employeeId and the last log of each day are read; logs are kept in time order
+    private Map<String, Presence> readLastLogs(Collection<String> employeeIds, long dateEpoch) {
+        Criteria criteria = Criteria.where("dateEpoch").is(dateEpoch);
+        if (employeeIds != null) criteria = criteria.and("employeeId").in(employeeIds);
+        Query query = Query.query(criteria);
+        query.fields().include("employeeId").slice("logs", -1);
+
+        Map<String, Presence> lastLogs = new HashMap<>();
+        try (Stream<DailyAttendance> days = mongoTemplate.stream(query, DailyAttendance.class)) {
+            days.forEach(day -> {
+                List<CheckInOut> logs = day.getLogs();
+                if (logs != null && !logs.isEmpty()) {
+                    CheckInOut last = logs.get(logs.size() - 1);
+                    lastLogs.put(day.getEmployeeId(), new Presence(last.getType(), last.getTimestampEpoch()));
+                }
+            });
+        }
+        return lastLogs;
+    }
+
+    private long todayEpoch() {
+        return EpochUtil.toEpochSeconds(LocalDate.now(ZONE_ID), ZONE_ID);
+    }
+}
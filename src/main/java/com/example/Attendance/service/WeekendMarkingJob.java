@@ -0,0 +1,218 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.model.Employee;
+import com.example.Attendance.model.EmployeeAttendanceSummary.DayAttendanceMeta;
+import com.example.Attendance.model.JobCheckpoint;
+import com.example.Attendance.model.RegisteredUser;
+import com.example.Attendance.repository.AttendanceSummaryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Marks the weekly-off days of a month for every registered user. Users are read in empId order in
+ * chunks; each chunk's employees are fetched in one query and its days written in one bulk write, with
+ * several chunks in flight. The checkpoint in job_checkpoints only advances past chunks that are done,
+ * so a run interrupted by a crash resumes from there (weekly offs never overwrite, so redoing is safe).
+ */
+@Service
+public class WeekendMarkingJob {
+
+    private static final Logger log = LoggerFactory.getLogger(WeekendMarkingJob.class);
+
+    private static final String JOB_NAME = "weekend-marking";
+
+    private final MongoTemplate mongoTemplate;
+    private final EmployeeService employeeService;
+    private final AttendanceSummaryStore summaryStore;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${attendance.weekend-job.chunk-size:500}")
+    private int chunkSize;
+    @Value("${attendance.weekend-job.workers:4}")
+    private int workers;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public WeekendMarkingJob(MongoTemplate mongoTemplate, EmployeeService employeeService,
+                             AttendanceSummaryStore summaryStore, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.employeeService = employeeService;
+        this.summaryStore = summaryStore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    private record Chunk(String lastEmpId, int size, CompletableFuture<Integer> marked) {}
+
+    @Scheduled(cron = "0 0 0 1 * *") // Every 1st of the month at midnight
+    public void runForCurrentMonth() {
+        run(YearMonth.now());
+    }
+
+    // Picks up runs that were interrupted, e.g. by a restart during the job
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRuns() {
+        Query query = Query.query(Criteria.where("_id").regex("^" + Pattern.quote(JOB_NAME + "_"))
+                .and("status").is(JobCheckpoint.RUNNING));
+        for (JobCheckpoint checkpoint : mongoTemplate.find(query, JobCheckpoint.class)) {
+            YearMonth month = YearMonth.parse(checkpoint.getId().substring(JOB_NAME.length() + 1));
+            Thread.ofVirtual().name("weekend-marking-resume").start(() -> run(month));
+        }
+    }
+
+    // false if a run is already in progress on this instance
+    public boolean run(YearMonth month) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Weekend marking for {} not started, a run is already in progress", month);
+            return false;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
+        try {
+            JobCheckpoint checkpoint = startOrResume(month);
+            process(month, checkpoint);
+            outcome = "completed";
+            return true;
+        } finally {
+            sample.stop(Timer.builder("attendance.weekend_job.duration")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            running.set(false);
+        }
+    }
+
+    private void process(YearMonth month, JobCheckpoint checkpoint) {
+        Counter employeesMarked = meterRegistry.counter("attendance.weekend_job.employees", "result", "marked");
+        Counter employeesSkipped = meterRegistry.counter("attendance.weekend_job.employees", "result", "skipped");
+        Timer chunkTimer = meterRegistry.timer("attendance.weekend_job.chunk.duration");
+
+        String lastEmpId = checkpoint.getLastKey();
+        long processed = checkpoint.getProcessed();
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<String> empIds;
+            while (!(empIds = nextChunk(lastEmpId)).isEmpty()) {
+                List<String> chunkIds = empIds;
+                lastEmpId = chunkIds.get(chunkIds.size() - 1);
+                inFlight.add(new Chunk(lastEmpId, chunkIds.size(), CompletableFuture.supplyAsync(
+                        () -> markChunk(chunkIds, month, chunkTimer), executor)));
+
+                // Checkpoint the completed prefix; wait for the oldest chunk when all workers are busy
+                while (!inFlight.isEmpty() && (inFlight.size() >= workers || inFlight.peek().marked().isDone())) {
+                    processed = completeOldest(month, inFlight, processed, employeesMarked, employeesSkipped);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                processed = completeOldest(month, inFlight, processed, employeesMarked, employeesSkipped);
+            }
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(checkpointId(month))),
+                new Update().set("status", JobCheckpoint.COMPLETED).set("updatedAt", Instant.now()),
+                JobCheckpoint.class);
+        log.info("Weekend marking for {} completed, {} registered users processed", month, processed);
+    }
+
+    // Waits for the oldest chunk and moves the checkpoint past it; a failed chunk aborts the run
+    private long completeOldest(YearMonth month, Deque<Chunk> inFlight, long processed,
+                                Counter employeesMarked, Counter employeesSkipped) {
+        Chunk chunk = inFlight.poll();
+        int marked = chunk.marked().join();
+        employeesMarked.increment(marked);
+        employeesSkipped.increment(chunk.size() - marked);
+
+        long total = processed + chunk.size();
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(checkpointId(month))),
+                new Update().set("lastKey", chunk.lastEmpId()).set("processed", total).set("updatedAt", Instant.now()),
+                JobCheckpoint.class);
+        return total;
+    }
+
+    // Next chunkSize distinct empIds after lastEmpId, in empId order (served by the empId index)
+    private List<String> nextChunk(String lastEmpId) {
+        Query query = new Query();
+        if (lastEmpId != null) {
+            query.addCriteria(Criteria.where("empId").gt(lastEmpId));
+        } else {
+            query.addCriteria(Criteria.where("empId").ne(null));
+        }
+        query.with(Sort.by("empId")).limit(chunkSize);
+        query.fields().include("empId");
+        return mongoTemplate.find(query, RegisteredUser.class).stream()
+                .map(RegisteredUser::getEmpId)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    // Returns how many of the users got their weekly offs written
+    private int markChunk(List<String> empIds, YearMonth month, Timer chunkTimer) {
+        long startedAt = System.nanoTime();
+        Map<String, Map<LocalDate, DayAttendanceMeta>> daysByEmployee = new LinkedHashMap<>();
+        for (Employee employee : employeeService.getEmployeesByEmpIds(empIds)) {
+            Map<LocalDate, DayAttendanceMeta> weeklyOffs = weeklyOffDays(employee.getWeeklyOffs(), month);
+            if (!weeklyOffs.isEmpty()) {
+                daysByEmployee.put(employee.getEmployeeId(), weeklyOffs);
+            }
+        }
+        summaryStore.setDaysIfAbsent(daysByEmployee);
+        chunkTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return daysByEmployee.size();
+    }
+
+    private Map<LocalDate, DayAttendanceMeta> weeklyOffDays(List<String> weeklyOffs, YearMonth month) {
+        Map<LocalDate, DayAttendanceMeta> days = new LinkedHashMap<>();
+        if (weeklyOffs == null || weeklyOffs.isEmpty()) return days;
+
+        Set<String> offDays = weeklyOffs.stream().map(String::toUpperCase).collect(Collectors.toSet());
+        for (int day = 1; day <= month.lengthOfMonth(); day++) {
+            LocalDate date = month.atDay(day);
+            if (offDays.contains(date.getDayOfWeek().name())) {
+                days.put(date, new DayAttendanceMeta("Weekly Off"));
+            }
+        }
+        return days;
+    }
+
+    // A RUNNING checkpoint is resumed; a missing or COMPLETED one starts the month from the beginning
+    private JobCheckpoint startOrResume(YearMonth month) {
+        JobCheckpoint checkpoint = mongoTemplate.findById(checkpointId(month), JobCheckpoint.class);
+        if (checkpoint != null && JobCheckpoint.RUNNING.equals(checkpoint.getStatus())) {
+            log.info("Resuming weekend marking for {} after {} ({} processed)",
+                    month, checkpoint.getLastKey(), checkpoint.getProcessed());
+            return checkpoint;
+        }
+        Instant now = Instant.now();
+        checkpoint = new JobCheckpoint(checkpointId(month), JobCheckpoint.RUNNING, null, 0, now, now);
+        mongoTemplate.save(checkpoint);
+        return checkpoint;
+    }
+
+    private String checkpointId(YearMonth month) {
+        return JOB_NAME + "_" + month;
+    }
+}
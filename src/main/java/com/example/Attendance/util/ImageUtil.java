@@ -0,0 +1,191 @@
+package com.example.Attendance.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+public class ImageUtil {
+
+    // subsampled: decoded at a fraction of the stored resolution
+    public record DecodedImage(BufferedImage image, boolean subsampled) {}
+
+    // EXIF orientation of a JPEG (1-8), 1 if absent or not a JPEG
+    public static int readExifOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) return 1;
+
+        int pos = 2;
+        while (pos + 4 <= jpeg.length && (jpeg[pos] & 0xFF) == 0xFF) {
+            int marker = jpeg[pos + 1] & 0xFF;
+            int length = readShort(jpeg, pos + 2, true);
+            if (marker == 0xDA || marker == 0xD9 || length < 2) return 1; // image data starts, no EXIF before it
+
+            int segment = pos + 4;
+            if (marker == 0xE1 && segment + 6 <= jpeg.length && startsWithExif(jpeg, segment)) {
+                return orientationFromTiff(jpeg, segment + 6, Math.min(jpeg.length, pos + 2 + length));
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    public static BufferedImage decode(byte[] bytes) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        return image;
+    }
+
+    /**
+     * Decodes with source subsampling, so the longer side comes out no smaller than maxDimension but
+     * without decoding every pixel of a large photo. The stored size is read from the header first;
+     * images over maxPixels are refused before anything is allocated for them.
+     */
+    public static DecodedImage decodeWithin(byte[] bytes, int maxDimension, long maxPixels) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image of " + width + "x" + height + " exceeds " + maxPixels + " pixels");
+                }
+
+                int factor = Math.max(1, Math.max(width, height) / Math.max(1, maxDimension));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                return new DecodedImage(reader.read(0, param), factor > 1);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Applies the EXIF orientation and fits the longer side within maxDimension, as an RGB image
+    public static BufferedImage orientAndScale(BufferedImage source, int orientation, int maxDimension) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        double scale = longest > maxDimension ? (double) maxDimension / longest : 1.0;
+
+        // Halving steps first: a single bilinear pass over a large reduction skips pixels and aliases
+        BufferedImage image = source;
+        while (scale < 0.5) {
+            image = draw(image, image.getWidth() / 2, image.getHeight() / 2, new AffineTransform(0.5, 0, 0, 0.5, 0, 0));
+            scale *= 2;
+        }
+
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        boolean swapsSides = orientation >= 5 && orientation <= 8;
+
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);       // mirror horizontal
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height); // rotate 180
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);      // mirror vertical
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);            // transpose
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);      // rotate 90 clockwise
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width); // transverse
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, width);       // rotate 270 clockwise
+            default -> new AffineTransform();
+        };
+        transform.scale(scale, scale);
+
+        if (transform.isIdentity() && !image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        return swapsSides
+                ? draw(image, height, width, transform)
+                : draw(image, width, height, transform);
+    }
+
+    // Baseline JPEG at the given quality (0-1)
+    public static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            // Transparent areas become white rather than black in the JPEG
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, target.getWidth(), target.getHeight());
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static boolean startsWithExif(byte[] bytes, int pos) {
+        return bytes[pos] == 'E' && bytes[pos + 1] == 'x' && bytes[pos + 2] == 'i' && bytes[pos + 3] == 'f'
+                && bytes[pos + 4] == 0 && bytes[pos + 5] == 0;
+    }
+
+    // Looks up tag 0x0112 in IFD0 of the TIFF structure between start and end
+    private static int orientationFromTiff(byte[] bytes, int start, int end) {
+        if (start + 8 > end) return 1;
+        boolean bigEndian;
+        if (bytes[start] == 'M' && bytes[start + 1] == 'M') bigEndian = true;
+        else if (bytes[start] == 'I' && bytes[start + 1] == 'I') bigEndian = false;
+        else return 1;
+
+        long ifdOffset = readInt(bytes, start + 4, bigEndian) & 0xFFFFFFFFL;
+        int ifd = start + (int) Math.min(ifdOffset, Integer.MAX_VALUE - start);
+        if (ifdOffset > end - start || ifd + 2 > end) return 1;
+
+        int entries = readShort(bytes, ifd, bigEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) return 1;
+            if (readShort(bytes, entry, bigEndian) == 0x0112) {
+                int orientation = readShort(bytes, entry + 8, bigEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] bytes, int pos, boolean bigEndian) {
+        int a = bytes[pos] & 0xFF;
+        int b = bytes[pos + 1] & 0xFF;
+        return bigEndian ? (a << 8) | b : (b << 8) | a;
+    }
+
+    private static int readInt(byte[] bytes, int pos, boolean bigEndian) {
+        int hi = readShort(bytes, bigEndian ? pos : pos + 2, bigEndian);
+        int lo = readShort(bytes, bigEndian ? pos + 2 : pos, bigEndian);
+        return (hi << 16) | lo;
+    }
+}
@@ -1,6 +1,14 @@
 package com.example.Attendance.util;
 
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -8,12 +16,20 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 
 @Service
 public class MinIOService {
 
+    private static final Logger log = LoggerFactory.getLogger(MinIOService.class);
+
     @Value("${minio.serviceUrl}")
     private String minioServiceUrl;
 
@@ -23,17 +39,40 @@ public class MinIOService {
     @Value("${minio.checkinBucketName}")
     private String checkinBucketName;
 
+    @Value("${minio.url}")
+    private String minioUrl;
+
+    // proxy: upload through minio.serviceUrl; direct: put objects with the MinIO SDK
+    @Value("${minio.uploadMode:proxy}")
+    private String uploadMode;
+
+    @Value("${minio.partSize:5MB}")
+    private DataSize partSize;
 
+    private final MinioClient minioClient;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+
+    public MinIOService(MinioClient minioClient, @Qualifier("minioRestTemplate") RestTemplate restTemplate) {
+        this.minioClient = minioClient;
+        this.restTemplate = restTemplate;
+    }
 
     public String generateUUID() {
         return restTemplate.getForObject(minioServiceUrl + "/generate-uuid", String.class);
     }
 
     public String uploadFile(String bucketName, String employeeId, MultipartFile file) {
+        return uploadFile(bucketName, employeeId, file.getOriginalFilename(), file.getContentType(), file.getResource());
+    }
+
+    public String uploadFile(String bucketName, String employeeId, String filename, String contentType, Resource file) {
+        if ("direct".equalsIgnoreCase(uploadMode)) {
+            return putObject(bucketName, employeeId, filename, contentType, file);
+        }
+
         String uniqueId = generateUUID(); // 🔥 Fetch UUID from MinIO Service
-        String filePath = employeeId + "/" + uniqueId + "_" + file.getOriginalFilename(); // 🔥 Construct path
+        String filePath = employeeId + "/" + uniqueId + "_" + filename; // 🔥 Construct path
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
@@ -41,7 +80,7 @@ public class MinIOService {
         MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
         body.add("bucketName", bucketName);
         body.add("filePath", filePath);
-        body.add("file", file.getResource());
+        body.add("file", file);
 
         HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
         ResponseEntity<String> response = restTemplate.postForEntity(minioServiceUrl + "/upload", requestEntity, String.class);
@@ -57,4 +96,47 @@ public class MinIOService {
         return uploadFile(checkinBucketName, employeeId, file);
     }
 
+    public String getCheckinImgUrl(String employeeId, String filename, String contentType, byte[] bytes) {
+        return uploadFile(checkinBucketName, employeeId, filename, contentType, new ByteArrayResource(bytes) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        });
+    }
+
+    // Streams the file straight into MinIO; objects larger than minio.partSize go up as multipart uploads
+    private String putObject(String bucketName, String employeeId, String filename, String contentType, Resource file) {
+        String objectName = employeeId + "/" + TimeOrderedUuid.next() + "_" + filename;
+        try (InputStream in = file.getInputStream()) {
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .stream(in, file.contentLength(), partSize.toBytes())
+                    .contentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE)
+                    .build());
+        } catch (Exception e) {
+            throw new RuntimeException("Error uploading to MinIO: " + e.getMessage(), e);
+        }
+        return minioUrl + "/" + bucketName + "/" + UriUtils.encodePath(objectName, StandardCharsets.UTF_8);
+    }
+
+    // Best-effort removal of a check-in image by the URL returned from uploadFile
+    public void deleteCheckinImage(String fileUrl) {
+        if (fileUrl == null) return;
+        try {
+            String path = URI.create(fileUrl).getPath();
+            String bucketPrefix = "/" + checkinBucketName + "/";
+            int start = path.indexOf(bucketPrefix);
+            if (start < 0) {
+                log.warn("Cannot locate object of check-in image {}", fileUrl);
+                return;
+            }
+            String objectName = path.substring(start + bucketPrefix.length());
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(checkinBucketName).object(objectName).build());
+        } catch (Exception e) {
+            log.warn("Could not delete check-in image {}: {}", fileUrl, e.getMessage());
+        }
+    }
+
 }
@@ -0,0 +1,75 @@
+package com.example.Attendance.util;
+
+import com.example.Attendance.dto.CompactMonthlySummaryDTO;
+import com.example.Attendance.dto.MonthlyAttendanceSummaryDTO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts monthly summaries to and from the compact wire format. Clients decode a mask by testing
+ * bits 0..30: bit n set means day n + 1 of year/month is in that category.
+ */
+public class MonthlySummaryCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.attendance.summary.compact+json";
+
+    public static CompactMonthlySummaryDTO encode(MonthlyAttendanceSummaryDTO summary, int year, int month) {
+        return new CompactMonthlySummaryDTO(year, month,
+                mask(summary.getPresentDates(), year, month),
+                mask(summary.getFullLeaveDates(), year, month),
+                mask(summary.getHalfDayLeaveDates(), year, month),
+                mask(summary.getFullCompoffDates(), year, month),
+                mask(summary.getHalfCompoffDates(), year, month),
+                mask(summary.getWeeklyOffDates(), year, month),
+                mask(summary.getAbsentDates(), year, month));
+    }
+
+    // Dates come back in ascending order, without duplicates
+    public static MonthlyAttendanceSummaryDTO decode(CompactMonthlySummaryDTO compact) {
+        int year = compact.getYear();
+        int month = compact.getMonth();
+        MonthlyAttendanceSummaryDTO summary = new MonthlyAttendanceSummaryDTO();
+        summary.setPresentDates(dates(compact.getPresent(), year, month));
+        summary.setFullLeaveDates(dates(compact.getFullLeave(), year, month));
+        summary.setHalfDayLeaveDates(dates(compact.getHalfDayLeave(), year, month));
+        summary.setFullCompoffDates(dates(compact.getFullCompoff(), year, month));
+        summary.setHalfCompoffDates(dates(compact.getHalfCompoff(), year, month));
+        summary.setWeeklyOffDates(dates(compact.getWeeklyOff(), year, month));
+        summary.setAbsentDates(dates(compact.getAbsent(), year, month));
+        return summary;
+    }
+
+    // Report entry ({employeeId, attendance} or {employeeId, error}) with the attendance encoded
+    public static Map<String, Object> encodeEntry(Map<String, Object> entry, int year, int month) {
+        if (!(entry.get("attendance") instanceof MonthlyAttendanceSummaryDTO summary)) {
+            return entry;
+        }
+        Map<String, Object> compact = new HashMap<>(entry);
+        compact.put("attendance", encode(summary, year, month));
+        return compact;
+    }
+
+    public static int mask(List<LocalDate> dates, int year, int month) {
+        int mask = 0;
+        if (dates == null) return mask;
+        for (LocalDate date : dates) {
+            if (date.getYear() != year || date.getMonthValue() != month) {
+                throw new IllegalArgumentException(date + " is not in " + year + "-" + month);
+            }
+            mask |= 1 << (date.getDayOfMonth() - 1);
+        }
+        return mask;
+    }
+
+    public static List<LocalDate> dates(int mask, int year, int month) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            dates.add(LocalDate.of(year, month, Integer.numberOfTrailingZeros(bits) + 1));
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.Attendance.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+// Version 7 UUIDs: 48-bit Unix millis followed by random bits, so ids sort by creation time
+public class TimeOrderedUuid {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public static UUID next() {
+        long millis = System.currentTimeMillis();
+        long randA = RANDOM.nextInt(1 << 12);
+        long randB = RANDOM.nextLong();
+
+        long mostSigBits = (millis << 16) | 0x7000L | randA;
+        long leastSigBits = (randB & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
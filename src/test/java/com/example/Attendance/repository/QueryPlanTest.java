@@ -0,0 +1,125 @@
+package com.example.Attendance.repository;
+
+import com.example.Attendance.service.MongoIndexService;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Explains the filter of every repository query against a real mongod, with the indexes
+ * MongoIndexService creates, and fails when a winning plan scans a whole collection.
+ * Runs only when MONGO_EXPLAIN_URI is set, e.g. MONGO_EXPLAIN_URI=mongodb://localhost:27017 ./gradlew test
+ */
+@EnabledIfEnvironmentVariable(named = "MONGO_EXPLAIN_URI", matches = ".+")
+class QueryPlanTest {
+
+	private static MongoClient client;
+	private static MongoDatabase database;
+
+	@BeforeAll
+	static void createIndexes() {
+		client = MongoClients.create(System.getenv("MONGO_EXPLAIN_URI"));
+		String databaseName = "attendance_query_plans_" + UUID.randomUUID().toString().substring(0, 8);
+		database = client.getDatabase(databaseName);
+		new MongoIndexService(new MongoTemplate(client, databaseName)).ensureIndexes();
+	}
+
+	@AfterAll
+	static void dropDatabase() {
+		if (database != null) database.drop();
+		if (client != null) client.close();
+	}
+
+	// Filters as Spring Data derives them from the repository methods (and the custom fragments)
+	@TestFactory
+	Stream<DynamicTest> repositoryQueriesUseIndexes() {
+		Date start = new Date(1735669800000L);
+		Date end = new Date(1738348199000L);
+		Document leaveRange = new Document("$gt", start).append("$lt", end);
+		Document epochRange = new Document("$gte", 1735669800L).append("$lte", 1738348199L);
+
+		Map<String, Document> finds = new LinkedHashMap<>();
+		finds.put("DailyAttendanceRepository.findFirstByEmployeeIdOrderByDateEpochAsc",
+				find("daily_attendance", new Document("employeeId", "emp001"))
+						.append("sort", new Document("dateEpoch", 1)).append("limit", 1));
+		finds.put("DailyAttendanceRepository.findByEmployeeIdAndDateEpoch",
+				find("daily_attendance", new Document("employeeId", "emp001").append("dateEpoch", 1735669800L)));
+		finds.put("DailyAttendanceRepository.findByEmployeeIdInAndDateEpoch",
+				find("daily_attendance", new Document("employeeId", new Document("$in", List.of("emp001", "emp002")))
+						.append("dateEpoch", 1735669800L)));
+		finds.put("DailyAttendanceRepository.findByEmployeeIdInAndDateEpochIn",
+				find("daily_attendance", new Document("employeeId", new Document("$in", List.of("emp001", "emp002")))
+						.append("dateEpoch", new Document("$in", List.of(1735669800L, 1735756200L)))));
+		finds.put("TodayPresenceIndex whole day",
+				find("daily_attendance", new Document("dateEpoch", 1735669800L)));
+		finds.put("DailyAttendanceRepository.findByEmployeeIdAndDateEpochBetween",
+				find("daily_attendance", new Document("employeeId", "emp001").append("dateEpoch", epochRange)));
+		finds.put("DailyAttendanceRepository.findAttendedDayEpochs",
+				aggregate("daily_attendance", new Document("employeeId", new Document("$in", List.of("emp001", "emp002")))
+						.append("dateEpoch", epochRange)
+						.append("logs.0", new Document("$exists", true))));
+		finds.put("AbsenceBackfillService completed markers",
+				find("attendance_backfill", new Document("completed", true)));
+		finds.put("RegisteredUserRepository.findByEmpId",
+				find("Registered-Users", new Document("empId", "emp001")));
+		finds.put("EmployeeRepository.findByEmployeeId",
+				find("employees", new Document("employeeId", "emp001")));
+		finds.put("EmployeeRepository.findByCompanyId",
+				find("employees", new Document("companyId", "c1")));
+		finds.put("EmployeeRepository.findByEmployeeIdIn",
+				find("employees", new Document("employeeId", new Document("$in", List.of("emp001", "emp002")))));
+		finds.put("LeaveRepository.findByEmployeeIdAndStatusAndLeaveDatesBetween",
+				find("Leaves", new Document("employeeId", "emp001").append("status", "Approved").append("leaveDates", leaveRange)));
+		finds.put("LeaveRepository.findByEmployeeIdInAndStatusAndLeaveDatesBetween",
+				find("Leaves", new Document("employeeId", new Document("$in", List.of("emp001", "emp002")))
+						.append("status", "Approved").append("leaveDates", leaveRange)));
+		finds.put("FaceVerificationReconciler due entries",
+				find("pending_verifications", new Document("nextAttemptAt", new Document("$lte", end)))
+						.append("sort", new Document("nextAttemptAt", 1)).append("limit", 50));
+		finds.put("AttendanceMonthBucket by employee and month",
+				find("attendance_summary_months", new Document("employeeId", "emp001").append("year", 2025).append("month", 1)));
+
+		return finds.entrySet().stream().map(query -> DynamicTest.dynamicTest(query.getKey(), () -> {
+			Document explain = database.runCommand(new Document("explain", query.getValue()).append("verbosity", "queryPlanner"));
+			assertFalse(hasCollectionScan(explain, false), () -> query.getKey() + " plans a COLLSCAN: " + explain.toJson());
+		}));
+	}
+
+	private static Document find(String collection, Document filter) {
+		return new Document("find", collection).append("filter", filter);
+	}
+
+	private static Document aggregate(String collection, Document match) {
+		return new Document("aggregate", collection)
+				.append("pipeline", List.of(new Document("$match", match)))
+				.append("cursor", new Document());
+	}
+
+	// Looks for a COLLSCAN stage inside any winningPlan; rejected plans are ignored
+	private static boolean hasCollectionScan(Object node, boolean inWinningPlan) {
+		if (node instanceof Document document) {
+			if (inWinningPlan && "COLLSCAN".equals(document.get("stage"))) return true;
+			for (Map.Entry<String, Object> entry : document.entrySet()) {
+				if ("rejectedPlans".equals(entry.getKey())) continue;
+				if (hasCollectionScan(entry.getValue(), inWinningPlan || "winningPlan".equals(entry.getKey()))) return true;
+			}
+		} else if (node instanceof List<?> list) {
+			for (Object item : list) {
+				if (hasCollectionScan(item, inWinningPlan)) return true;
+			}
+		}
+		return false;
+	}
+}
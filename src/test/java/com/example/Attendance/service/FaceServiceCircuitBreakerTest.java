@@ -0,0 +1,180 @@
+package com.example.Attendance.service;
+
+import com.example.Attendance.exception.FaceServiceUnavailableException;
+import com.example.Attendance.service.FaceServiceCircuitBreaker.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FaceServiceCircuitBreakerTest {
+
+	private static final long FAST = Duration.ofMillis(100).toNanos();
+	private static final long SLOW = Duration.ofSeconds(9).toNanos();
+
+	@Test
+	void staysClosedBelowMinimumCalls() {
+		FaceServiceCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+		for (int i = 0; i < 9; i++) {
+			call(breaker, false);
+		}
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.isCallPermitted());
+	}
+
+	@Test
+	void opensAtFailureRateThreshold() {
+		FaceServiceCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+		for (int i = 0; i < 4; i++) {
+			call(breaker, true);
+		}
+		for (int i = 0; i < 5; i++) {
+			call(breaker, false);
+		}
+		assertEquals(State.CLOSED, breaker.getState());
+
+		// 10th call: 5 of 10 failed is the 50% threshold
+		call(breaker, true);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	@Test
+	void staysClosedBelowFailureRateThreshold() {
+		FaceServiceCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+		for (int i = 0; i < 4; i++) {
+			call(breaker, true);
+		}
+		for (int i = 0; i < 16; i++) {
+			call(breaker, false);
+		}
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void oldOutcomesLeaveTheWindow() {
+		FaceServiceCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+		for (int i = 0; i < 9; i++) {
+			call(breaker, true);
+		}
+		for (int i = 0; i < 20; i++) {
+			call(breaker, false);
+		}
+		// The 9 failures have been pushed out; 9 more out of 20 stay under 50%
+		for (int i = 0; i < 9; i++) {
+			call(breaker, true);
+		}
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void slowCallsCountAsFailures() {
+		FaceServiceCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+		for (int i = 0; i < 10; i++) {
+			breaker.acquirePermission();
+			breaker.onSuccess(SLOW);
+		}
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	@Test
+	void openCircuitRejectsCalls() {
+		FaceServiceCircuitBreaker breaker = tripped(Duration.ofMinutes(1));
+
+		assertFalse(breaker.isCallPermitted());
+		assertThrows(FaceServiceUnavailableException.class, breaker::acquirePermission);
+		assertThrows(FaceServiceUnavailableException.class, breaker::checkPermitted);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	@Test
+	void halfOpenAfterOpenDurationLimitsTrialCalls() {
+		FaceServiceCircuitBreaker breaker = tripped(Duration.ZERO);
+
+		assertTrue(breaker.isCallPermitted());
+		for (int i = 0; i < 3; i++) {
+			breaker.acquirePermission();
+			assertEquals(State.HALF_OPEN, breaker.getState());
+		}
+		assertFalse(breaker.isCallPermitted());
+		assertThrows(FaceServiceUnavailableException.class, breaker::acquirePermission);
+	}
+
+	@Test
+	void closesWhenAllTrialCallsSucceed() {
+		FaceServiceCircuitBreaker breaker = tripped(Duration.ZERO);
+		for (int i = 0; i < 3; i++) {
+			breaker.acquirePermission();
+		}
+		breaker.onSuccess(FAST);
+		breaker.onSuccess(FAST);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+
+		breaker.onSuccess(FAST);
+		assertEquals(State.CLOSED, breaker.getState());
+
+		// The window starts over: 9 failures are below minimum calls
+		for (int i = 0; i < 9; i++) {
+			call(breaker, true);
+		}
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void reopensWhenATrialCallFails() {
+		FaceServiceCircuitBreaker breaker = tripped(Duration.ofMinutes(1));
+		ReflectionTestUtils.setField(breaker, "openUntil", System.nanoTime());
+
+		breaker.acquirePermission();
+		breaker.onSuccess(FAST);
+		breaker.acquirePermission();
+		breaker.onFailure();
+
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(breaker.isCallPermitted());
+	}
+
+	@Test
+	void slowTrialCallReopens() {
+		FaceServiceCircuitBreaker breaker = tripped(Duration.ofMinutes(1));
+		ReflectionTestUtils.setField(breaker, "openUntil", System.nanoTime());
+
+		breaker.acquirePermission();
+		breaker.onSuccess(SLOW);
+
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	private static FaceServiceCircuitBreaker tripped(Duration openDuration) {
+		FaceServiceCircuitBreaker breaker = breaker(openDuration);
+		for (int i = 0; i < 10; i++) {
+			call(breaker, true);
+		}
+		assertEquals(State.OPEN, breaker.getState());
+		return breaker;
+	}
+
+	private static void call(FaceServiceCircuitBreaker breaker, boolean fail) {
+		breaker.acquirePermission();
+		if (fail) {
+			breaker.onFailure();
+		} else {
+			breaker.onSuccess(FAST);
+		}
+	}
+
+	// The defaults of application.properties, with the given open duration
+	private static FaceServiceCircuitBreaker breaker(Duration openDuration) {
+		FaceServiceCircuitBreaker breaker = new FaceServiceCircuitBreaker(new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(breaker, "windowSize", 20);
+		ReflectionTestUtils.setField(breaker, "minimumCalls", 10);
+		ReflectionTestUtils.setField(breaker, "failureRateThreshold", 50);
+		ReflectionTestUtils.setField(breaker, "slowCallThreshold", Duration.ofSeconds(8));
+		ReflectionTestUtils.setField(breaker, "openDuration", openDuration);
+		ReflectionTestUtils.setField(breaker, "halfOpenCalls", 3);
+		breaker.init();
+		return breaker;
+	}
+}
@@ -0,0 +1,226 @@
+package com.example.Attendance.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageUtilTest {
+
+	// SOI (2) + APP1 marker (2) + length (2) + "Exif\0\0" (6) + TIFF header (8) + entry count (2) + one entry (12)
+	private static final int END_OF_ORIENTATION_ENTRY = 34;
+
+	private static byte[] plainJpeg;
+
+	@BeforeAll
+	static void encodeFixture() throws IOException {
+		plainJpeg = ImageUtil.encodeJpeg(markedImage(16, 8), 0.9f);
+	}
+
+	@Test
+	void readsEveryOrientationBigEndian() {
+		for (int orientation = 1; orientation <= 8; orientation++) {
+			assertEquals(orientation, ImageUtil.readExifOrientation(insertAfterSoi(plainJpeg, exif(orientation, true))));
+		}
+	}
+
+	@Test
+	void readsEveryOrientationLittleEndian() {
+		for (int orientation = 1; orientation <= 8; orientation++) {
+			assertEquals(orientation, ImageUtil.readExifOrientation(insertAfterSoi(plainJpeg, exif(orientation, false))));
+		}
+	}
+
+	@Test
+	void readsApp1AfterOtherSegments() {
+		// ImageIO writes a JFIF APP0 segment right after SOI; EXIF placed behind it must still be found
+		assertEquals(0xE0, plainJpeg[3] & 0xFF);
+		int afterApp0 = 4 + (((plainJpeg[4] & 0xFF) << 8) | (plainJpeg[5] & 0xFF));
+		byte[] jpeg = insert(plainJpeg, afterApp0, exif(6, false));
+
+		assertEquals(6, ImageUtil.readExifOrientation(jpeg));
+	}
+
+	@Test
+	void defaultsWithoutApp1() {
+		assertEquals(1, ImageUtil.readExifOrientation(plainJpeg));
+	}
+
+	@Test
+	void defaultsForNonJpegInput() {
+		assertEquals(1, ImageUtil.readExifOrientation(new byte[0]));
+		assertEquals(1, ImageUtil.readExifOrientation(new byte[] {(byte) 0xFF, (byte) 0xD8}));
+		assertEquals(1, ImageUtil.readExifOrientation(new byte[] {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}));
+		assertEquals(1, ImageUtil.readExifOrientation(exif(6, true)));
+	}
+
+	@Test
+	void defaultsForTruncatedApp1() {
+		byte[] jpeg = insertAfterSoi(plainJpeg, exif(6, true));
+		for (int length = 0; length < END_OF_ORIENTATION_ENTRY; length++) {
+			int cut = length;
+			assertEquals(1, ImageUtil.readExifOrientation(Arrays.copyOf(jpeg, cut)), () -> "cut after " + cut + " bytes");
+		}
+		assertEquals(6, ImageUtil.readExifOrientation(Arrays.copyOf(jpeg, END_OF_ORIENTATION_ENTRY)));
+	}
+
+	@Test
+	void defaultsWhenSegmentLengthEndsBeforeTheEntry() {
+		byte[] segment = exif(6, false);
+		segment[3] = 20; // the TIFF data is there, but outside the declared segment
+
+		assertEquals(1, ImageUtil.readExifOrientation(insertAfterSoi(plainJpeg, segment)));
+	}
+
+	@Test
+	void defaultsForInvalidTiffHeaders() {
+		byte[] unknownByteOrder = exif(6, true);
+		unknownByteOrder[10] = 'X';
+		unknownByteOrder[11] = 'X';
+		assertEquals(1, ImageUtil.readExifOrientation(insertAfterSoi(plainJpeg, unknownByteOrder)));
+
+		byte[] ifdOutsideSegment = exif(6, true);
+		ifdOutsideSegment[17] = 100;
+		assertEquals(1, ImageUtil.readExifOrientation(insertAfterSoi(plainJpeg, ifdOutsideSegment)));
+
+		byte[] notExif = exif(6, true);
+		notExif[4] = 'X';
+		assertEquals(1, ImageUtil.readExifOrientation(insertAfterSoi(plainJpeg, notExif)));
+	}
+
+	@Test
+	void defaultsForOrientationOutOfRange() {
+		assertEquals(1, ImageUtil.readExifOrientation(insertAfterSoi(plainJpeg, exif(0, true))));
+		assertEquals(1, ImageUtil.readExifOrientation(insertAfterSoi(plainJpeg, exif(9, false))));
+	}
+
+	@Test
+	void orientsEveryOrientation() {
+		// Where the source's top-left corner ends up: 0 top-left, 1 top-right, 2 bottom-right, 3 bottom-left
+		int[] markedCorner = {0, 0, 1, 2, 3, 0, 1, 2, 3};
+		BufferedImage source = markedImage(40, 20);
+
+		for (int orientation = 1; orientation <= 8; orientation++) {
+			BufferedImage oriented = ImageUtil.orientAndScale(source, orientation, 1280);
+			boolean swapped = orientation >= 5;
+			assertEquals(swapped ? 20 : 40, oriented.getWidth(), "width for orientation " + orientation);
+			assertEquals(swapped ? 40 : 20, oriented.getHeight(), "height for orientation " + orientation);
+			for (int corner = 0; corner < 4; corner++) {
+				assertEquals(corner == markedCorner[orientation], isMarker(cornerPixel(oriented, corner)),
+						"corner " + corner + " for orientation " + orientation);
+			}
+		}
+	}
+
+	@Test
+	void fitsLongerSideWithinMaxDimension() {
+		BufferedImage source = markedImage(400, 200);
+
+		BufferedImage upright = ImageUtil.orientAndScale(source, 1, 100);
+		assertEquals(100, upright.getWidth());
+		assertEquals(50, upright.getHeight());
+		assertTrue(isMarker(cornerPixel(upright, 0)));
+
+		BufferedImage rotated = ImageUtil.orientAndScale(source, 6, 100);
+		assertEquals(50, rotated.getWidth());
+		assertEquals(100, rotated.getHeight());
+		assertTrue(isMarker(cornerPixel(rotated, 1)));
+	}
+
+	@Test
+	void decodesSubsampledTowardsMaxDimension() throws IOException {
+		byte[] jpeg = ImageUtil.encodeJpeg(markedImage(400, 200), 0.9f);
+
+		ImageUtil.DecodedImage decoded = ImageUtil.decodeWithin(jpeg, 100, Long.MAX_VALUE);
+		assertTrue(decoded.subsampled());
+		assertEquals(100, decoded.image().getWidth());
+		assertEquals(50, decoded.image().getHeight());
+		assertTrue(isMarker(cornerPixel(decoded.image(), 0)));
+
+		ImageUtil.DecodedImage small = ImageUtil.decodeWithin(jpeg, 1280, Long.MAX_VALUE);
+		assertFalse(small.subsampled());
+		assertEquals(400, small.image().getWidth());
+	}
+
+	@Test
+	void refusesImagesOverThePixelLimit() throws IOException {
+		byte[] jpeg = ImageUtil.encodeJpeg(markedImage(400, 200), 0.9f);
+
+		assertThrows(IOException.class, () -> ImageUtil.decodeWithin(jpeg, 100, 400 * 200 - 1));
+		assertEquals(400, ImageUtil.decodeWithin(jpeg, 1280, 400 * 200).image().getWidth());
+		assertThrows(IOException.class, () -> ImageUtil.decodeWithin(new byte[] {1, 2, 3}, 100, Long.MAX_VALUE));
+	}
+
+	@Test
+	void neverUpscales() {
+		BufferedImage oriented = ImageUtil.orientAndScale(markedImage(40, 20), 1, 1280);
+		assertEquals(40, oriented.getWidth());
+		assertEquals(20, oriented.getHeight());
+	}
+
+	// Blue with a red block in the top-left quarter
+	private static BufferedImage markedImage(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.BLUE);
+		g.fillRect(0, 0, width, height);
+		g.setColor(Color.RED);
+		g.fillRect(0, 0, width / 4, height / 4);
+		g.dispose();
+		return image;
+	}
+
+	// A pixel just inside the corner: 0 top-left, 1 top-right, 2 bottom-right, 3 bottom-left
+	private static int cornerPixel(BufferedImage image, int corner) {
+		int x = corner == 1 || corner == 2 ? image.getWidth() - 2 : 1;
+		int y = corner == 2 || corner == 3 ? image.getHeight() - 2 : 1;
+		return image.getRGB(x, y);
+	}
+
+	private static boolean isMarker(int rgb) {
+		Color color = new Color(rgb);
+		return color.getRed() > 200 && color.getBlue() < 60;
+	}
+
+	// APP1 segment holding only IFD0 with the orientation tag (SHORT, count 1)
+	private static byte[] exif(int orientation, boolean bigEndian) {
+		byte[] tiff = bigEndian
+				? new byte[] {
+						'M', 'M', 0, 42, 0, 0, 0, 8,
+						0, 1,
+						0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+						0, 0, 0, 0}
+				: new byte[] {
+						'I', 'I', 42, 0, 8, 0, 0, 0,
+						1, 0,
+						0x12, 0x01, 3, 0, 1, 0, 0, 0, (byte) orientation, 0, 0, 0,
+						0, 0, 0, 0};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(0xFF);
+		out.write(0xE1);
+		int length = 2 + 6 + tiff.length;
+		out.write(length >> 8);
+		out.write(length & 0xFF);
+		out.writeBytes(new byte[] {'E', 'x', 'i', 'f', 0, 0});
+		out.writeBytes(tiff);
+		return out.toByteArray();
+	}
+
+	private static byte[] insertAfterSoi(byte[] jpeg, byte[] segment) {
+		return insert(jpeg, 2, segment);
+	}
+
+	private static byte[] insert(byte[] jpeg, int pos, byte[] segment) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(jpeg.length + segment.length);
+		out.write(jpeg, 0, pos);
+		out.writeBytes(segment);
+		out.write(jpeg, pos, jpeg.length - pos);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.Attendance.util;
+
+import com.example.Attendance.dto.CompactMonthlySummaryDTO;
+import com.example.Attendance.dto.MonthlyAttendanceSummaryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonthlySummaryCodecTest {
+
+	@Test
+	void roundTripsEveryCategory() {
+		MonthlyAttendanceSummaryDTO summary = new MonthlyAttendanceSummaryDTO();
+		summary.setPresentDates(days(2025, 1, 2, 3, 6, 31));
+		summary.setFullLeaveDates(days(2025, 1, 7));
+		summary.setHalfDayLeaveDates(days(2025, 1, 8));
+		summary.setFullCompoffDates(days(2025, 1, 9, 10));
+		summary.setHalfCompoffDates(days(2025, 1, 13));
+		summary.setWeeklyOffDates(days(2025, 1, 4, 5, 11, 12, 18, 19, 25, 26));
+		summary.setAbsentDates(days(2025, 1, 1, 14, 15, 16, 17, 20, 21, 22, 23, 24, 27, 28, 29, 30));
+
+		CompactMonthlySummaryDTO compact = MonthlySummaryCodec.encode(summary, 2025, 1);
+		MonthlyAttendanceSummaryDTO decoded = MonthlySummaryCodec.decode(compact);
+
+		assertEquals(2025, compact.getYear());
+		assertEquals(1, compact.getMonth());
+		assertEquals(summary.getPresentDates(), decoded.getPresentDates());
+		assertEquals(summary.getFullLeaveDates(), decoded.getFullLeaveDates());
+		assertEquals(summary.getHalfDayLeaveDates(), decoded.getHalfDayLeaveDates());
+		assertEquals(summary.getFullCompoffDates(), decoded.getFullCompoffDates());
+		assertEquals(summary.getHalfCompoffDates(), decoded.getHalfCompoffDates());
+		assertEquals(summary.getWeeklyOffDates(), decoded.getWeeklyOffDates());
+		assertEquals(summary.getAbsentDates(), decoded.getAbsentDates());
+	}
+
+	@Test
+	void roundTripsEmptyAndMissingLists() {
+		MonthlyAttendanceSummaryDTO summary = new MonthlyAttendanceSummaryDTO();
+		summary.setPresentDates(List.of());
+
+		MonthlyAttendanceSummaryDTO decoded = MonthlySummaryCodec.decode(MonthlySummaryCodec.encode(summary, 2024, 2));
+
+		assertTrue(decoded.getPresentDates().isEmpty());
+		assertTrue(decoded.getAbsentDates().isEmpty());
+	}
+
+	@Test
+	void usesOneBitPerDay() {
+		assertEquals(1, MonthlySummaryCodec.mask(days(2025, 3, 1), 2025, 3));
+		assertEquals(1 << 30, MonthlySummaryCodec.mask(days(2025, 3, 31), 2025, 3));
+		assertEquals(days(2024, 2, 1, 29), MonthlySummaryCodec.dates(1 | 1 << 28, 2024, 2));
+	}
+
+	@Test
+	void decodesUnsortedInputInDateOrder() {
+		int mask = MonthlySummaryCodec.mask(days(2025, 5, 20, 3, 3, 11), 2025, 5);
+		assertEquals(days(2025, 5, 3, 11, 20), MonthlySummaryCodec.dates(mask, 2025, 5));
+	}
+
+	@Test
+	void rejectsDatesOutsideTheMonth() {
+		assertThrows(IllegalArgumentException.class,
+				() -> MonthlySummaryCodec.mask(List.of(LocalDate.of(2025, 6, 1)), 2025, 5));
+	}
+
+	@Test
+	void encodesOnlyAttendanceEntries() {
+		MonthlyAttendanceSummaryDTO summary = new MonthlyAttendanceSummaryDTO();
+		summary.setPresentDates(days(2025, 1, 2));
+
+		Map<String, Object> encoded = MonthlySummaryCodec.encodeEntry(
+				Map.of("employeeId", "emp001", "attendance", summary), 2025, 1);
+		Map<String, Object> error = Map.of("employeeId", "emp002", "error", "Employee not found");
+
+		assertEquals("emp001", encoded.get("employeeId"));
+		assertEquals(0b10, ((CompactMonthlySummaryDTO) encoded.get("attendance")).getPresent());
+		assertSame(error, MonthlySummaryCodec.encodeEntry(error, 2025, 1));
+	}
+
+	private static List<LocalDate> days(int year, int month, int... days) {
+		List<LocalDate> dates = new ArrayList<>();
+		for (int day : days) {
+			dates.add(LocalDate.of(year, month, day));
+		}
+		return dates;
+	}
+}